@@ -0,0 +1,422 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Clase que almacena las reservas repartidas en varias particiones, cada una con su propio archivo CSV y su propio bloqueo.
+ * Las escrituras en particiones distintas avanzan de forma independiente y cada reescritura solo toca el archivo
+ * de su partición. Las consultas que abarcan todas las particiones se resuelven en paralelo.
+ * Un manifiesto "prefijo-particiones.properties" guarda la cantidad de particiones y el criterio con que se
+ * repartieron los archivos, y al abrirlos se verifica que coincidan con los indicados.
+ */
+public class AlmacenParticionado {
+
+    /**
+     * Criterio usado para asignar cada reserva a una partición.
+     */
+    public enum Criterio {
+        USUARIO,
+        AEROLINEA
+    }
+
+    private final String prefijo; // Prefijo de los archivos de las particiones y del manifiesto
+    private final Criterio criterio; // Campo de la reserva que determina su partición
+    private final Particion[] particiones;
+    private final Path manifiesto; // Cantidad de particiones y criterio con que se repartieron los archivos
+
+    /**
+     * Constructor para la clase AlmacenParticionado.
+     * @param prefijo El prefijo de los archivos de cada partición; la partición i se guarda en "prefijo-i.csv".
+     * @param cantidad La cantidad de particiones.
+     * @param criterio El criterio para asignar las reservas a las particiones.
+     */
+    public AlmacenParticionado(String prefijo, int cantidad, Criterio criterio) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad de particiones debe ser mayor que cero.");
+        }
+        this.prefijo = prefijo;
+        this.criterio = criterio;
+        this.manifiesto = Paths.get(prefijo + "-particiones.properties");
+        this.particiones = new Particion[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            particiones[i] = new Particion(Paths.get(prefijo + "-" + i + ".csv"));
+        }
+    }
+
+    /**
+     * Abre un almacén particionado. Si sus archivos ya existen se cargan, verificando antes que se hayan repartido
+     * con la misma cantidad de particiones y el mismo criterio; si no existen se crean a partir de las reservas
+     * iniciales. El almacén devuelto está completamente cargado y nadie más lo usa todavía.
+     * @param prefijo El prefijo de los archivos de cada partición.
+     * @param cantidad La cantidad de particiones.
+     * @param criterio El criterio para asignar las reservas a las particiones.
+     * @param iniciales Las reservas con que se crean los archivos si todavía no existen; debe estar vacía si ya
+     *                  existen, porque no se agregarían a ellos.
+     * @return El almacén cargado.
+     * @throws IOException Si ocurre un error de E/S, si los archivos existentes se repartieron con otra cantidad
+     *                     de particiones u otro criterio o no tienen manifiesto, o si ya existen y se indicaron
+     *                     reservas iniciales.
+     */
+    public static AlmacenParticionado abrir(String prefijo, int cantidad, Criterio criterio, Collection<Reserva> iniciales)
+            throws IOException {
+        AlmacenParticionado almacen = new AlmacenParticionado(prefijo, cantidad, criterio);
+        if (Files.exists(almacen.manifiesto)) {
+            almacen.verificarManifiesto();
+            if (!iniciales.isEmpty()) {
+                throw new IOException("Ya existen particiones de " + prefijo + "; las " + iniciales.size()
+                        + " reservas actuales no se agregarían a ellas. Expórtelas e impórtelas con el almacenamiento"
+                        + " particionado activo.");
+            }
+            almacen.cargar();
+        } else if (almacen.existeEnDisco()) {
+            throw new IOException("Los archivos de " + prefijo + " no tienen manifiesto; no se sabe cómo se repartieron.");
+        } else {
+            almacen.importar(new ArrayList<>(iniciales));
+            almacen.guardarManifiesto();
+        }
+        return almacen;
+    }
+
+    /**
+     * Abre un almacén particionado ya creado, con la cantidad de particiones y el criterio de su manifiesto.
+     * @param prefijo El prefijo de los archivos de cada partición.
+     * @return El almacén cargado, o null si no existe el manifiesto.
+     * @throws IOException Si ocurre un error de E/S o el manifiesto no es válido.
+     */
+    public static AlmacenParticionado abrirExistente(String prefijo) throws IOException {
+        Path manifiesto = Paths.get(prefijo + "-particiones.properties");
+        if (!Files.exists(manifiesto)) {
+            return null;
+        }
+        Properties propiedades = leerManifiesto(manifiesto);
+        try {
+            int cantidad = Integer.parseInt(propiedades.getProperty("cantidad"));
+            Criterio criterio = Criterio.valueOf(propiedades.getProperty("criterio"));
+            return abrir(prefijo, cantidad, criterio, Collections.emptyList());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("El manifiesto " + manifiesto + " no es válido.", e);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de particiones.
+     * @return La cantidad de particiones.
+     */
+    public int getCantidad() {
+        return particiones.length;
+    }
+
+    /**
+     * Obtiene el criterio con que se asignan las reservas a las particiones.
+     * @return El criterio.
+     */
+    public Criterio getCriterio() {
+        return criterio;
+    }
+
+    /**
+     * Abre de nuevo los mismos archivos y los carga en un almacén nuevo, sin modificar este.
+     * @return El almacén recién cargado.
+     * @throws IOException Si ocurre un error de E/S o el manifiesto no coincide.
+     */
+    public AlmacenParticionado recargar() throws IOException {
+        return abrir(prefijo, particiones.length, criterio, Collections.emptyList());
+    }
+
+    /**
+     * Indica si ya existe en disco el archivo de alguna partición.
+     * @return true si al menos una partición tiene archivo, false en caso contrario.
+     */
+    public boolean existeEnDisco() {
+        return Arrays.stream(particiones).anyMatch(p -> Files.exists(p.archivo));
+    }
+
+    /**
+     * Carga todas las particiones desde sus archivos en paralelo. Solo se usa sobre un almacén recién creado
+     * que nadie más está consultando.
+     * @throws IOException Si ocurre un error de E/S al leer algún archivo.
+     */
+    private void cargar() throws IOException {
+        try {
+            Arrays.stream(particiones).parallel().forEach(Particion::cargar);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reparte una lista de reservas entre las particiones y guarda todos los archivos.
+     * @param reservas Las reservas a repartir.
+     * @throws IOException Si ocurre un error de E/S al escribir algún archivo.
+     */
+    public void importar(List<Reserva> reservas) throws IOException {
+        for (Reserva reserva : reservas) {
+            Particion particion = particionDe(reserva);
+            particion.bloqueo.writeLock().lock();
+            try {
+                particion.reservas.add(reserva);
+            } finally {
+                particion.bloqueo.writeLock().unlock();
+            }
+        }
+        guardar();
+    }
+
+    /**
+     * Crea un almacén nuevo sobre los mismos archivos, con la misma cantidad de particiones y el mismo criterio,
+     * que contiene solo las reservas indicadas, y reescribe todos los archivos. Este almacén no se modifica, de
+     * modo que quien lo consulte sigue viendo todas sus reservas hasta que se publique el nuevo.
+     * @param reservas Las reservas que forman el nuevo almacén.
+     * @return El nuevo almacén.
+     * @throws IOException Si ocurre un error de E/S al escribir algún archivo.
+     */
+    public AlmacenParticionado conReservas(List<Reserva> reservas) throws IOException {
+        AlmacenParticionado nuevo = new AlmacenParticionado(prefijo, particiones.length, criterio);
+        nuevo.importar(reservas);
+        return nuevo;
+    }
+
+    /**
+     * Guarda todas las particiones en sus archivos en paralelo.
+     * @throws IOException Si ocurre un error de E/S al escribir algún archivo.
+     */
+    public void guardar() throws IOException {
+        try {
+            Arrays.stream(particiones).parallel().forEach(Particion::guardar);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Agrega una reserva a su partición y reescribe solo el archivo de esa partición. Si la escritura falla la
+     * reserva no queda agregada.
+     * @param reserva La reserva a agregar.
+     * @param alGuardar Acción que se ejecuta con la partición todavía bloqueada, después de guardar el archivo,
+     *                  por ejemplo para publicar el cambio antes de que otro hilo pueda cancelar la reserva.
+     * @throws IOException Si ocurre un error de E/S al escribir el archivo de la partición.
+     */
+    public void agregar(Reserva reserva, Runnable alGuardar) throws IOException {
+        Particion particion = particionDe(reserva);
+        particion.bloqueo.writeLock().lock();
+        try {
+            particion.reservas.add(reserva);
+            try {
+                particion.escribir();
+            } catch (IOException e) {
+                particion.reservas.remove(particion.reservas.size() - 1);
+                throw e;
+            }
+            alGuardar.run();
+        } finally {
+            particion.bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina una reserva de su partición y reescribe solo el archivo de esa partición. Si la escritura falla la
+     * reserva no queda eliminada.
+     * @param reserva La reserva a eliminar.
+     * @param alGuardar Acción que se ejecuta con la partición todavía bloqueada, después de guardar el archivo;
+     *                  no se ejecuta si la reserva no existía.
+     * @return true si la reserva existía, false en caso contrario.
+     * @throws IOException Si ocurre un error de E/S al escribir el archivo de la partición.
+     */
+    public boolean eliminar(Reserva reserva, Runnable alGuardar) throws IOException {
+        Particion particion = particionDe(reserva);
+        particion.bloqueo.writeLock().lock();
+        try {
+            int posicion = particion.reservas.indexOf(reserva);
+            if (posicion < 0) {
+                return false;
+            }
+            particion.reservas.remove(posicion);
+            try {
+                particion.escribir();
+            } catch (IOException e) {
+                particion.reservas.add(posicion, reserva);
+                throw e;
+            }
+            alGuardar.run();
+            return true;
+        } finally {
+            particion.bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina varias reservas y reescribe una sola vez el archivo de cada partición afectada. Las reservas se
+     * quitan de todas las particiones aunque falle la escritura de alguna.
+     * @param eliminadas Las reservas a eliminar.
+     * @throws IOException Si ocurre un error de E/S al escribir algún archivo; los demás se escriben igual.
+     */
+    public void eliminarTodas(Collection<Reserva> eliminadas) throws IOException {
+        // Un conjunto por identidad permite quitar cada reserva en tiempo constante
+        Set<Reserva> porEliminar = Collections.newSetFromMap(new IdentityHashMap<>());
+        porEliminar.addAll(eliminadas);
+        IOException error = null;
+        for (Particion particion : particiones) {
+            particion.bloqueo.writeLock().lock();
+            try {
+                if (particion.reservas.removeIf(porEliminar::contains)) {
+                    particion.escribir();
+                }
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            } finally {
+                particion.bloqueo.writeLock().unlock();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Devuelve las reservas de un usuario. Si el almacén está particionado por usuario solo se consulta una partición.
+     * @param username El nombre de usuario.
+     * @return Las reservas del usuario.
+     */
+    public List<Reserva> buscarPorUsuario(String username) {
+        Predicate<Reserva> filtro = r -> r.getUsername().equals(username);
+        if (criterio == Criterio.USUARIO) {
+            return particiones[indice(username)].buscar(filtro);
+        }
+        return buscar(filtro);
+    }
+
+    /**
+     * Busca en paralelo en todas las particiones las reservas que cumplen un filtro.
+     * @param filtro El filtro que deben cumplir las reservas.
+     * @return Las reservas encontradas.
+     */
+    public List<Reserva> buscar(Predicate<Reserva> filtro) {
+        return Arrays.stream(particiones).parallel()
+                     .flatMap(p -> p.buscar(filtro).stream())
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * Devuelve todas las reservas de todas las particiones.
+     * @return Una lista con todas las reservas.
+     */
+    public List<Reserva> todas() {
+        return buscar(r -> true);
+    }
+
+    private static Properties leerManifiesto(Path archivo) throws IOException {
+        Properties propiedades = new Properties();
+        try (Reader reader = Files.newBufferedReader(archivo)) {
+            propiedades.load(reader);
+        }
+        return propiedades;
+    }
+
+    private void verificarManifiesto() throws IOException {
+        Properties propiedades = leerManifiesto(manifiesto);
+        String cantidad = propiedades.getProperty("cantidad");
+        String guardado = propiedades.getProperty("criterio");
+        if (!String.valueOf(particiones.length).equals(cantidad) || !criterio.name().equals(guardado)) {
+            throw new IOException("Los archivos de particiones se crearon con " + cantidad + " particiones por " + guardado
+                    + ", no con " + particiones.length + " por " + criterio + ". Para cambiarlos, exporte las reservas,"
+                    + " borre los archivos de particiones y vuelva a importarlas.");
+        }
+    }
+
+    private void guardarManifiesto() throws IOException {
+        Properties propiedades = new Properties();
+        propiedades.setProperty("cantidad", String.valueOf(particiones.length));
+        propiedades.setProperty("criterio", criterio.name());
+        EscrituraAtomica.escribir(manifiesto, out -> propiedades.store(out, "Particiones de reservas"));
+    }
+
+    private Particion particionDe(Reserva reserva) {
+        return particiones[indice(criterio == Criterio.USUARIO ? reserva.getUsername() : reserva.getAerolinea())];
+    }
+
+    private int indice(String clave) {
+        return Math.floorMod(clave.hashCode(), particiones.length);
+    }
+
+    /**
+     * Partición con su propio archivo, su segmento de reservas en memoria y su bloqueo.
+     */
+    private static class Particion {
+        private final Path archivo;
+        private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+        private final List<Reserva> reservas = new ArrayList<>();
+
+        Particion(Path archivo) {
+            this.archivo = archivo;
+        }
+
+        List<Reserva> buscar(Predicate<Reserva> filtro) {
+            bloqueo.readLock().lock();
+            try {
+                return reservas.stream().filter(filtro).collect(Collectors.toList());
+            } finally {
+                bloqueo.readLock().unlock();
+            }
+        }
+
+        void cargar() {
+            List<Reserva> cargadas = new ArrayList<>();
+            if (Files.exists(archivo)) {
+                try (BufferedReader br = Files.newBufferedReader(archivo)) {
+                    String linea;
+                    while ((linea = br.readLine()) != null) {
+                        Reserva reserva = Reserva.desdeLineaCsv(linea);
+                        if (reserva != null) {
+                            cargadas.add(reserva);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            bloqueo.writeLock().lock();
+            try {
+                reservas.clear();
+                reservas.addAll(cargadas);
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        }
+
+        void guardar() {
+            bloqueo.writeLock().lock();
+            try {
+                escribir();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                bloqueo.writeLock().unlock();
+            }
+        }
+
+        // Debe llamarse con el bloqueo de escritura tomado
+        void escribir() throws IOException {
+            EscrituraAtomica.escribirLineas(archivo, () -> reservas.stream().map(Reserva::aLineaCsv).iterator());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Clase que guarda las reservas de vuelos pasados en archivos comprimidos, uno por mes de vuelo.
+ * Los meses archivados solo se leen de disco cuando se consultan, y en memoria se mantienen solo los
+ * consultados más recientemente.
+ */
+public class ArchivoHistorico {
+
+    private static final int MESES_EN_MEMORIA = 24; // Meses leídos que se conservan en memoria
+
+    private final Path directorio; // Directorio que contiene los archivos "reservas-yyyy-MM.csv.gz"
+    private final Map<String, List<Reserva>> mesesCargados = new LinkedHashMap<String, List<Reserva>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Reserva>> masAntiguo) {
+            return size() > MESES_EN_MEMORIA;
+        }
+    }; // Meses ya leídos de disco, del menos al más recientemente consultado; se usa sincronizado
+    private long version; // Cambia cada vez que se escribe un mes; se usa sincronizado con mesesCargados
+
+    /**
+     * Constructor para la clase ArchivoHistorico.
+     * @param directorio El directorio donde se guardan los archivos del histórico.
+     */
+    public ArchivoHistorico(Path directorio) {
+        this.directorio = directorio;
+    }
+
+    /**
+     * Agrega reservas al histórico, cada una en el archivo del mes de su vuelo.
+     * Cada mes se reemplaza de forma atómica por una copia de lo ya archivado con un nuevo bloque gzip al final,
+     * de modo que un fallo deja el archivo del mes como estaba. Apenas un mes queda escrito se informan sus
+     * reservas, para que quien llama pueda quitarlas de las reservas en memoria aunque falle un mes posterior.
+     * Las reservas que ya figuran en el archivo del mes no se vuelven a agregar: si un archivado anterior escribió
+     * el mes pero no llegó a quitar sus reservas, repetirlo no las duplica. Las líneas se cuentan, de modo que de
+     * varias reservas idénticas solo se omiten tantas como ya haya en el archivo.
+     * @param reservas Las reservas a archivar; todas deben tener fecha de vuelo.
+     * @param alArchivarMes La operación que recibe las reservas de cada mes una vez escritas en disco.
+     * @throws IOException Si ocurre un error de E/S al escribir un mes; los meses informados antes ya quedaron archivados.
+     */
+    public synchronized void archivar(List<Reserva> reservas, Consumer<List<Reserva>> alArchivarMes) throws IOException {
+        Files.createDirectories(directorio);
+        Map<String, List<Reserva>> porMes = reservas.stream()
+                .collect(Collectors.groupingBy(r -> mes(r.getFechaVuelo()), LinkedHashMap::new, Collectors.toList()));
+        for (Map.Entry<String, List<Reserva>> entrada : porMes.entrySet()) {
+            Path archivo = archivoDe(entrada.getKey());
+            Map<String, Integer> yaArchivadas = contarLineas(archivo);
+            List<String> nuevas = new ArrayList<>();
+            for (Reserva reserva : entrada.getValue()) {
+                String linea = reserva.aLineaCsv();
+                if (yaArchivadas.getOrDefault(linea, 0) > 0) {
+                    yaArchivadas.merge(linea, -1, Integer::sum);
+                } else {
+                    nuevas.add(linea);
+                }
+            }
+            if (!nuevas.isEmpty()) {
+                EscrituraAtomica.escribir(archivo, out -> {
+                    // Los bloques ya archivados se copian sin descomprimir; GZIPInputStream los lee como un solo flujo
+                    if (Files.exists(archivo)) {
+                        Files.copy(archivo, out);
+                    }
+                    try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(out),
+                                                                                       StandardCharsets.UTF_8))) {
+                        for (String linea : nuevas) {
+                            bw.write(linea);
+                            bw.newLine();
+                        }
+                    }
+                });
+                // El mes cambió en disco, se volverá a leer en la próxima consulta
+                synchronized (mesesCargados) {
+                    mesesCargados.remove(entrada.getKey());
+                    version++;
+                }
+            }
+            alArchivarMes.accept(entrada.getValue());
+        }
+    }
+
+    /**
+     * Devuelve las reservas archivadas de un usuario con fecha de vuelo dentro de un rango.
+     * Solo se leen de disco los meses del rango que todavía no estén en memoria.
+     * @param username El nombre de usuario.
+     * @param desde El inicio del rango (inclusive).
+     * @param hasta El fin del rango (inclusive).
+     * @return Las reservas archivadas que cumplen los criterios.
+     * @throws IOException Si ocurre un error de E/S al leer los archivos.
+     */
+    public List<Reserva> buscar(String username, Date desde, Date hasta) throws IOException {
+        List<Reserva> encontradas = new ArrayList<>();
+        Calendar calendario = Calendar.getInstance();
+        calendario.setTime(desde);
+        // Recorrer desde el primer instante del mes para no saltarse el último mes si "hasta" es más temprano en el día
+        calendario.set(Calendar.DAY_OF_MONTH, 1);
+        calendario.set(Calendar.HOUR_OF_DAY, 0);
+        calendario.set(Calendar.MINUTE, 0);
+        calendario.set(Calendar.SECOND, 0);
+        calendario.set(Calendar.MILLISECOND, 0);
+        while (!calendario.getTime().after(hasta)) {
+            for (Reserva reserva : cargarMes(mes(calendario.getTime()))) {
+                Date fecha = reserva.getFechaVuelo();
+                if (reserva.getUsername().equals(username) && !fecha.before(desde) && !fecha.after(hasta)) {
+                    encontradas.add(reserva);
+                }
+            }
+            calendario.add(Calendar.MONTH, 1);
+        }
+        return encontradas;
+    }
+
+    /**
+     * Devuelve las reservas archivadas de un mes, leyéndolas de disco si aún no están en memoria.
+     * @param mes El mes en formato "yyyy-MM".
+     * @return Las reservas de ese mes, o una lista vacía si el mes no tiene archivo.
+     * @throws IOException Si ocurre un error de E/S al leer el archivo.
+     */
+    public List<Reserva> cargarMes(String mes) throws IOException {
+        long versionLeida;
+        synchronized (mesesCargados) {
+            List<Reserva> cargado = mesesCargados.get(mes);
+            if (cargado != null) {
+                return cargado;
+            }
+            versionLeida = version;
+        }
+        // La lectura se hace fuera del bloqueo para no detener las consultas de meses que ya están en memoria
+        List<Reserva> leido = leerMes(mes);
+        synchronized (mesesCargados) {
+            // Si mientras tanto se archivó algún mes, lo leído puede estar desactualizado y no se guarda
+            if (version == versionLeida) {
+                mesesCargados.put(mes, leido);
+            }
+        }
+        return leido;
+    }
+
+    private List<Reserva> leerMes(String mes) throws IOException {
+        Path archivo = archivoDe(mes);
+        if (!Files.exists(archivo)) {
+            return Collections.emptyList();
+        }
+        List<Reserva> reservas = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archivo)), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = br.readLine()) != null) {
+                Reserva reserva = Reserva.desdeLineaCsv(linea);
+                if (reserva != null && reserva.getFechaVuelo() != null) {
+                    reservas.add(reserva);
+                }
+            }
+        }
+        return Collections.unmodifiableList(reservas);
+    }
+
+    // Cuenta cuántas veces aparece cada línea en el archivo de un mes
+    private static Map<String, Integer> contarLineas(Path archivo) throws IOException {
+        Map<String, Integer> lineas = new HashMap<>();
+        if (Files.exists(archivo)) {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(archivo)), StandardCharsets.UTF_8))) {
+                String linea;
+                while ((linea = br.readLine()) != null) {
+                    lineas.merge(linea, 1, Integer::sum);
+                }
+            }
+        }
+        return lineas;
+    }
+
+    private Path archivoDe(String mes) {
+        return directorio.resolve("reservas-" + mes + ".csv.gz");
+    }
+
+    private static String mes(Date fecha) {
+        return new SimpleDateFormat("yyyy-MM").format(fecha);
+    }
+}
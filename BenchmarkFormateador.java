@@ -0,0 +1,73 @@
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Programa que mide la memoria reservada por fila al formatear reservas, comparando el formato anterior basado en
+ * String.format y SimpleDateFormat con FormateadorReserva escribiendo en un StringBuilder reutilizado.
+ * También verifica que ambos formatos producen exactamente el mismo texto; el formato anterior se evalúa con
+ * Locale.ROOT porque FormateadorReserva siempre escribe dígitos ASCII.
+ * Uso: java BenchmarkFormateador [filas]
+ */
+public class BenchmarkFormateador {
+
+    public static void main(String[] args) {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+
+        List<Reserva> reservas = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Reserva reserva = new Reserva(String.format(Locale.ROOT, "%02d/%02d/20%02d %02d:%02d", i % 28 + 1, i % 12 + 1, i % 100, i % 24, i % 60),
+                                          i % 2 == 0, i % 9 + 1, "Aerolinea" + i % 7, "usuario" + i);
+            reserva.setNumeroTarjeta(i % 3 == 0 ? null : "4111" + i);
+            reserva.setCuotas(i % 12);
+            reserva.setClaseVuelo(i % 2 == 0 ? "economica" : "negocios");
+            reserva.setNumeroAsiento(i % 30 + "A");
+            reserva.setCantidadMaletas(i % 4);
+            reservas.add(reserva);
+        }
+
+        // Verificar que la salida es idéntica a la del formato anterior con dígitos ASCII
+        StringBuilder buffer = new StringBuilder(256);
+        for (Reserva reserva : reservas) {
+            buffer.setLength(0);
+            FormateadorReserva.escribir(reserva, buffer);
+            if (!buffer.toString().equals(formatoAnterior(reserva))) {
+                throw new IllegalStateException("Salida distinta para " + formatoAnterior(reserva) + ": " + buffer);
+            }
+        }
+
+        long longitud = 0;
+        for (int ronda = 0; ronda < 3; ronda++) { // La primera ronda calienta el JIT
+            long antes = hilos.getThreadAllocatedBytes(hilo);
+            for (int i = 0; i < filas; i++) {
+                longitud += formatoAnterior(reservas.get(i % reservas.size())).length();
+            }
+            long anterior = hilos.getThreadAllocatedBytes(hilo) - antes;
+
+            antes = hilos.getThreadAllocatedBytes(hilo);
+            for (int i = 0; i < filas; i++) {
+                buffer.setLength(0);
+                FormateadorReserva.escribir(reservas.get(i % reservas.size()), buffer);
+                longitud += buffer.length();
+            }
+            long nuevo = hilos.getThreadAllocatedBytes(hilo) - antes;
+
+            System.out.printf("Ronda %d: String.format %.1f bytes/fila, FormateadorReserva %.1f bytes/fila%n",
+                              ronda, (double) anterior / filas, (double) nuevo / filas);
+        }
+        System.out.println("Caracteres generados: " + longitud);
+    }
+
+    // Formato usado por Reserva.toString antes de FormateadorReserva, sin los dígitos de la configuración regional
+    private static String formatoAnterior(Reserva reserva) {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.ROOT);
+        return String.format(Locale.ROOT, "Reserva{fechaVuelo='%s', tipoVuelo=%b, cantidadBoletos=%d, aerolinea='%s', username='%s', numeroTarjeta='%s', cuotas=%d, claseVuelo='%s', numeroAsiento='%s', cantidadMaletas=%d}",
+                             sdf.format(reserva.getFechaVuelo()), reserva.isTipoVuelo(), reserva.getCantidadBoletos(), reserva.getAerolinea(),
+                             reserva.getUsername(), reserva.getNumeroTarjeta(), reserva.getCuotas(), reserva.getClaseVuelo(),
+                             reserva.getNumeroAsiento(), reserva.getCantidadMaletas());
+    }
+}
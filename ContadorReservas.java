@@ -0,0 +1,105 @@
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase que mantiene contadores materializados de boletos reservados por aerolínea, día de vuelo y tipo de vuelo.
+ * Los contadores se actualizan de forma incremental en cada reserva o cancelación, de modo que las consultas
+ * de los tableros no necesitan recorrer la lista completa de reservas.
+ */
+public class ContadorReservas {
+
+    private static final long MILIS_POR_DIA = 86_400_000L;
+
+    private final TimeZone zona = TimeZone.getDefault(); // Zona con que se determina el día de cada vuelo
+    private final Map<Clave, LongAdder> contadores = new ConcurrentHashMap<>(); // Boletos por (aerolínea, día, tipo)
+
+    /**
+     * Suma los boletos de una reserva nueva al contador correspondiente.
+     * @param reserva La reserva registrada.
+     */
+    public void registrar(Reserva reserva) {
+        sumar(reserva, reserva.getCantidadBoletos());
+    }
+
+    /**
+     * Resta los boletos de una reserva cancelada del contador correspondiente.
+     * @param reserva La reserva cancelada.
+     */
+    public void cancelar(Reserva reserva) {
+        sumar(reserva, -reserva.getCantidadBoletos());
+    }
+
+    /**
+     * Reconstruye todos los contadores a partir de una lista de reservas, por ejemplo después de cargar el archivo.
+     * @param reservas La colección completa de reservas.
+     */
+    public void reconstruir(Collection<Reserva> reservas) {
+        contadores.clear();
+        for (Reserva reserva : reservas) {
+            registrar(reserva);
+        }
+    }
+
+    /**
+     * Devuelve la cantidad de boletos reservados para una aerolínea en un día y tipo de vuelo dados.
+     * @param aerolinea La aerolínea a consultar.
+     * @param dia Cualquier instante dentro del día de vuelo a consultar.
+     * @param tipoVuelo El tipo de vuelo (true para premium, false para normal).
+     * @return La cantidad de boletos reservados, o 0 si no hay reservas.
+     */
+    public long boletos(String aerolinea, Date dia, boolean tipoVuelo) {
+        if (aerolinea == null || dia == null) {
+            return 0L;
+        }
+        LongAdder contador = contadores.get(new Clave(aerolinea, diaLocal(dia), tipoVuelo));
+        return contador != null ? contador.sum() : 0L;
+    }
+
+    private void sumar(Reserva reserva, long cantidad) {
+        // Las reservas con fecha inválida no pueden asignarse a ningún día
+        if (reserva.getFechaVuelo() == null || reserva.getAerolinea() == null) {
+            return;
+        }
+        Clave clave = new Clave(reserva.getAerolinea(), diaLocal(reserva.getFechaVuelo()), reserva.isTipoVuelo());
+        contadores.computeIfAbsent(clave, k -> new LongAdder()).add(cantidad);
+    }
+
+    // Días transcurridos desde la época en la zona local, sin crear un calendario por consulta
+    private long diaLocal(Date fecha) {
+        long milis = fecha.getTime();
+        return Math.floorDiv(milis + zona.getOffset(milis), MILIS_POR_DIA);
+    }
+
+    /**
+     * Clave de un contador: aerolínea, día local del vuelo y tipo de vuelo.
+     */
+    private static final class Clave {
+        private final String aerolinea;
+        private final long dia;
+        private final boolean tipoVuelo;
+
+        Clave(String aerolinea, long dia, boolean tipoVuelo) {
+            this.aerolinea = aerolinea;
+            this.dia = dia;
+            this.tipoVuelo = tipoVuelo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clave)) {
+                return false;
+            }
+            Clave otra = (Clave) o;
+            return dia == otra.dia && tipoVuelo == otra.tipoVuelo && aerolinea.equals(otra.aerolinea);
+        }
+
+        @Override
+        public int hashCode() {
+            return (aerolinea.hashCode() * 31 + Long.hashCode(dia)) * 31 + (tipoVuelo ? 1 : 0);
+        }
+    }
+}
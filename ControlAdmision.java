@@ -0,0 +1,166 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase que limita la tasa de solicitudes por operación, tanto por usuario como en total.
+ * Cada límite es una cubeta de fichas implementada con el algoritmo GCRA sobre un único AtomicLong, por lo que
+ * decidir si se admite una solicitud no bloquea ni reserva memoria. Las solicitudes que superan el límite se
+ * rechazan de inmediato en lugar de quedar en espera.
+ * El límite total se consulta primero, de modo que las solicitudes descartadas por sobrecarga no crean cubetas
+ * de usuario, y la cantidad de cubetas de usuario está acotada sin recorrerlas nunca.
+ */
+public class ControlAdmision {
+
+    /**
+     * Operaciones sujetas a control de admisión.
+     */
+    public enum Operacion {
+        LOGIN,
+        RESERVACION,
+        REGISTRO
+    }
+
+    private static final int MAXIMO_USUARIOS = 100_000; // Cubetas de usuario por generación y por operación
+
+    private final double tasaUsuario; // Solicitudes por segundo permitidas a cada usuario
+    private final int rafagaUsuario; // Solicitudes seguidas permitidas a cada usuario
+    private final Cubeta[] globales = new Cubeta[Operacion.values().length];
+    private final TablaCubetas[] porUsuario = new TablaCubetas[Operacion.values().length];
+    private final LongAdder[] admitidas = new LongAdder[Operacion.values().length];
+    private final LongAdder[] rechazadas = new LongAdder[Operacion.values().length];
+
+    /**
+     * Constructor para la clase ControlAdmision.
+     * @param tasaGlobal Las solicitudes por segundo permitidas en total para cada operación.
+     * @param rafagaGlobal Las solicitudes seguidas permitidas en total para cada operación.
+     * @param tasaUsuario Las solicitudes por segundo permitidas a cada usuario para cada operación.
+     * @param rafagaUsuario Las solicitudes seguidas permitidas a cada usuario para cada operación.
+     */
+    public ControlAdmision(double tasaGlobal, int rafagaGlobal, double tasaUsuario, int rafagaUsuario) {
+        if (tasaGlobal <= 0 || tasaUsuario <= 0 || rafagaGlobal <= 0 || rafagaUsuario <= 0) {
+            throw new IllegalArgumentException("Las tasas y ráfagas deben ser mayores que cero.");
+        }
+        this.tasaUsuario = tasaUsuario;
+        this.rafagaUsuario = rafagaUsuario;
+        for (int i = 0; i < globales.length; i++) {
+            globales[i] = new Cubeta(tasaGlobal, rafagaGlobal, System.nanoTime());
+            porUsuario[i] = new TablaCubetas();
+            admitidas[i] = new LongAdder();
+            rechazadas[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Decide si se admite una solicitud y la contabiliza como admitida o rechazada.
+     * @param operacion La operación solicitada.
+     * @param username El usuario que hace la solicitud, o null si no se conoce.
+     * @return true si la solicitud se admite, false si debe rechazarse.
+     */
+    public boolean admitir(Operacion operacion, String username) {
+        int i = operacion.ordinal();
+        long ahora = System.nanoTime();
+        // Se consulta el límite total sin consumirlo, luego el del usuario y por último se consume el total; así una
+        // solicitud descartada por sobrecarga no toca las cubetas de usuario y una rechazada por el límite de su
+        // usuario no gasta fichas del total
+        boolean admitida = globales[i].disponible(ahora)
+                && (username == null || cubetaDe(i, username, ahora).admitir(ahora))
+                && globales[i].admitir(ahora);
+        (admitida ? admitidas : rechazadas)[i].increment();
+        return admitida;
+    }
+
+    /**
+     * Devuelve la cantidad de solicitudes admitidas para una operación.
+     * @param operacion La operación a consultar.
+     * @return La cantidad de solicitudes admitidas.
+     */
+    public long admitidas(Operacion operacion) {
+        return admitidas[operacion.ordinal()].sum();
+    }
+
+    /**
+     * Devuelve la cantidad de solicitudes rechazadas para una operación.
+     * @param operacion La operación a consultar.
+     * @return La cantidad de solicitudes rechazadas.
+     */
+    public long rechazadas(Operacion operacion) {
+        return rechazadas[operacion.ordinal()].sum();
+    }
+
+    private Cubeta cubetaDe(int operacion, String username, long ahora) {
+        TablaCubetas tabla = porUsuario[operacion];
+        ConcurrentHashMap<String, Cubeta> actual = tabla.actual;
+        Cubeta cubeta = actual.get(username);
+        if (cubeta != null) {
+            return cubeta;
+        }
+        // Un usuario de la generación anterior conserva su cubeta; solo se reserva memoria para usuarios nuevos
+        cubeta = tabla.anterior.get(username);
+        if (cubeta == null) {
+            cubeta = new Cubeta(tasaUsuario, rafagaUsuario, ahora);
+        }
+        Cubeta existente = actual.putIfAbsent(username, cubeta);
+        if (existente != null) {
+            return existente;
+        }
+        if (actual.size() >= MAXIMO_USUARIOS) {
+            tabla.rotar(actual);
+        }
+        return cubeta;
+    }
+
+    /**
+     * Cubetas de usuario de una operación, en dos generaciones. Cuando la actual se llena pasa a ser la anterior
+     * y la anterior se descarta entera, sin recorrerla; los usuarios que siguen activos se copian a la actual la
+     * próxima vez que hacen una solicitud. Así la tabla nunca supera el doble de MAXIMO_USUARIOS cubetas.
+     */
+    private static class TablaCubetas {
+        private volatile ConcurrentHashMap<String, Cubeta> actual = new ConcurrentHashMap<>();
+        private volatile ConcurrentHashMap<String, Cubeta> anterior = new ConcurrentHashMap<>();
+
+        synchronized void rotar(ConcurrentHashMap<String, Cubeta> llena) {
+            // Otro hilo pudo haber rotado ya la misma generación
+            if (actual == llena) {
+                anterior = llena;
+                actual = new ConcurrentHashMap<>();
+            }
+        }
+    }
+
+    /**
+     * Cubeta de fichas expresada como el instante teórico de llegada (GCRA) de la próxima solicitud.
+     */
+    private static class Cubeta {
+        private final long intervalo; // Nanosegundos que tarda en reponerse una ficha
+        private final long tolerancia; // Adelanto máximo permitido respecto al ritmo nominal
+        private final AtomicLong llegadaTeorica;
+
+        // La cubeta empieza llena en el instante indicado
+        Cubeta(double tasa, int rafaga, long inicio) {
+            this.intervalo = Math.max(1L, (long) (1_000_000_000L / tasa));
+            this.tolerancia = intervalo * rafaga;
+            this.llegadaTeorica = new AtomicLong(inicio);
+        }
+
+        boolean admitir(long ahora) {
+            while (true) {
+                long actual = llegadaTeorica.get();
+                // Los instantes de System.nanoTime se comparan por diferencia para tolerar el desbordamiento
+                long siguiente = (actual - ahora > 0 ? actual : ahora) + intervalo;
+                if (siguiente - ahora > tolerancia) {
+                    return false;
+                }
+                if (llegadaTeorica.compareAndSet(actual, siguiente)) {
+                    return true;
+                }
+            }
+        }
+
+        // Indica si se admitiría una solicitud ahora, sin consumir ninguna ficha
+        boolean disponible(long ahora) {
+            long actual = llegadaTeorica.get();
+            return (actual - ahora > 0 ? actual : ahora) + intervalo - ahora <= tolerancia;
+        }
+    }
+}
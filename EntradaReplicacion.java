@@ -0,0 +1,157 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase que representa un cambio del estado del sistema enviado desde la instancia primaria a sus seguidores.
+ * Cada entrada lleva un número de secuencia creciente que define el orden en que deben aplicarse, y la época del
+ * primario que la generó: las secuencias solo son comparables dentro de una misma época, que cambia cada vez que un
+ * primario se inicia o se promueve.
+ */
+public class EntradaReplicacion {
+
+    /**
+     * Tipo de cambio replicado. LATIDO no modifica el estado; solo informa la secuencia actual del primario.
+     * INSTANTANEA reemplaza todo el estado del seguidor por el del primario en esa secuencia.
+     */
+    public enum Tipo {
+        LATIDO,
+        REGISTRO,
+        PASSWORD,
+        TIPO_USUARIO,
+        RESERVA,
+        CANCELACION,
+        INSTANTANEA
+    }
+
+    private final long epoca; // Identifica la ejecución del primario que asignó la secuencia
+    private final long secuencia; // Posición de la entrada en el registro del primario
+    private final long secuenciaPrimario; // Última secuencia asignada por el primario al enviar la entrada
+    private final long marcaTiempo; // Milisegundos desde la época en que el primario generó la entrada
+    private final Tipo tipo;
+    private final String[] campos;
+
+    /**
+     * Constructor para la clase EntradaReplicacion.
+     * @param epoca La época del primario que generó la entrada.
+     * @param secuencia El número de secuencia de la entrada.
+     * @param secuenciaPrimario La última secuencia asignada por el primario.
+     * @param marcaTiempo El instante en que se generó la entrada, en milisegundos desde la época.
+     * @param tipo El tipo de cambio.
+     * @param campos Los datos del cambio, en el orden que define cada tipo.
+     */
+    public EntradaReplicacion(long epoca, long secuencia, long secuenciaPrimario, long marcaTiempo, Tipo tipo,
+                              String... campos) {
+        this.epoca = epoca;
+        this.secuencia = secuencia;
+        this.secuenciaPrimario = secuenciaPrimario;
+        this.marcaTiempo = marcaTiempo;
+        this.tipo = tipo;
+        this.campos = campos;
+    }
+
+    /**
+     * Obtiene la época del primario que generó la entrada.
+     * @return La época.
+     */
+    public long getEpoca() {
+        return epoca;
+    }
+
+    /**
+     * Obtiene el número de secuencia.
+     * @return El número de secuencia.
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Obtiene la última secuencia asignada por el primario al momento de enviar la entrada.
+     * @return La secuencia del primario.
+     */
+    public long getSecuenciaPrimario() {
+        return secuenciaPrimario;
+    }
+
+    /**
+     * Obtiene el instante en que se generó la entrada.
+     * @return Los milisegundos desde la época.
+     */
+    public long getMarcaTiempo() {
+        return marcaTiempo;
+    }
+
+    /**
+     * Obtiene el tipo de cambio.
+     * @return El tipo de cambio.
+     */
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene uno de los datos del cambio.
+     * @param indice La posición del dato.
+     * @return El dato, que puede ser null.
+     */
+    public String getCampo(int indice) {
+        return campos[indice];
+    }
+
+    /**
+     * Obtiene la cantidad de datos del cambio.
+     * @return La cantidad de datos.
+     */
+    public int cantidadCampos() {
+        return campos.length;
+    }
+
+    /**
+     * Escribe la entrada en un flujo de datos.
+     * @param out El flujo de destino.
+     * @param secuenciaActual La última secuencia asignada por el primario al momento de escribir.
+     * @throws IOException Si ocurre un error de E/S al escribir.
+     */
+    public void escribir(DataOutputStream out, long secuenciaActual) throws IOException {
+        out.writeByte(tipo.ordinal());
+        out.writeLong(epoca);
+        out.writeLong(secuencia);
+        out.writeLong(secuenciaActual);
+        out.writeLong(marcaTiempo);
+        // Una instantánea lleva una fila por campo, por lo que la cantidad no cabe en un short
+        out.writeInt(campos.length);
+        for (String campo : campos) {
+            out.writeBoolean(campo != null);
+            if (campo != null) {
+                out.writeUTF(campo);
+            }
+        }
+    }
+
+    /**
+     * Lee una entrada escrita con {@link #escribir}.
+     * @param in El flujo de origen.
+     * @return La entrada leída.
+     * @throws IOException Si ocurre un error de E/S o el flujo se cierra.
+     */
+    public static EntradaReplicacion leer(DataInputStream in) throws IOException {
+        Tipo tipo = Tipo.values()[in.readUnsignedByte()];
+        long epoca = in.readLong();
+        long secuencia = in.readLong();
+        long secuenciaPrimario = in.readLong();
+        long marcaTiempo = in.readLong();
+        int cantidad = in.readInt();
+        if (cantidad < 0) {
+            throw new IOException("Entrada de replicación inválida: " + cantidad + " campos.");
+        }
+        // La lista crece a medida que llegan los campos, para no reservar memoria según un valor no verificado
+        List<String> campos = new ArrayList<>(Math.min(cantidad, 1024));
+        for (int i = 0; i < cantidad; i++) {
+            campos.add(in.readBoolean() ? in.readUTF() : null);
+        }
+        return new EntradaReplicacion(epoca, secuencia, secuenciaPrimario, marcaTiempo, tipo, campos.toArray(new String[0]));
+    }
+}
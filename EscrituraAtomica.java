@@ -0,0 +1,85 @@
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Clase que reemplaza archivos de datos de forma atómica: el contenido nuevo se escribe completo en un archivo
+ * temporal del mismo directorio, se fuerza a disco y luego se mueve sobre el archivo de destino.
+ * Quien lea el archivo, incluso otro proceso, ve la versión anterior completa o la nueva completa, nunca una
+ * escritura a medias, y un fallo durante la escritura deja intacta la versión anterior.
+ */
+public final class EscrituraAtomica {
+
+    /**
+     * Operación que escribe el contenido nuevo de un archivo. Puede cerrar el flujo que recibe, por ejemplo al
+     * cerrar un GZIPOutputStream que lo envuelve; el archivo se fuerza a disco y se cierra después.
+     */
+    public interface Escritor {
+        void escribir(OutputStream out) throws IOException;
+    }
+
+    private EscrituraAtomica() {
+    }
+
+    /**
+     * Reemplaza un archivo por el contenido que genera un escritor.
+     * @param destino El archivo a reemplazar; se crea si no existe.
+     * @param escritor La operación que escribe el contenido nuevo.
+     * @throws IOException Si ocurre un error de E/S; en ese caso el archivo de destino no cambia.
+     */
+    public static void escribir(Path destino, Escritor escritor) throws IOException {
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                  StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new FilterOutputStream(Channels.newOutputStream(canal)) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    this.out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            escritor.escribir(out);
+            out.flush();
+            canal.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reemplaza un archivo de texto UTF-8 por las líneas indicadas.
+     * @param destino El archivo a reemplazar; se crea si no existe.
+     * @param lineas Las líneas del contenido nuevo.
+     * @throws IOException Si ocurre un error de E/S; en ese caso el archivo de destino no cambia.
+     */
+    public static void escribirLineas(Path destino, Iterable<String> lineas) throws IOException {
+        escribir(destino, out -> {
+            try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (String linea : lineas) {
+                    bw.write(linea);
+                    bw.newLine();
+                }
+            }
+        });
+    }
+}
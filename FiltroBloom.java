@@ -0,0 +1,168 @@
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom escalable sobre cadenas de texto.
+ * Responde "definitivamente no existe" sin falsos negativos, o "podría existir" con una tasa de falsos positivos
+ * acotada. Cuando un tramo se llena se agrega uno nuevo del doble de capacidad y con una tasa más estricta,
+ * de modo que la tasa total se mantiene por debajo de la configurada a medida que crecen los elementos.
+ */
+public class FiltroBloom {
+
+    private static final double RAZON_AJUSTE = 0.5; // Factor con el que se reduce la tasa de cada tramo nuevo
+    private static final double MARGEN = 0.9; // Parte de la tasa configurada que se reparte entre los tramos
+    private static final int CAPACIDAD_MINIMA = 1024; // Los tramos muy chicos se desvían más de su tasa
+
+    private final double tasaFalsosPositivos; // Tasa máxima de falsos positivos configurada
+    private final List<Tramo> tramos = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor para la clase FiltroBloom.
+     * @param capacidadInicial La cantidad esperada de elementos para el primer tramo.
+     * @param tasaFalsosPositivos La tasa máxima de falsos positivos, entre 0 y 1 (exclusivos).
+     */
+    public FiltroBloom(int capacidadInicial, double tasaFalsosPositivos) {
+        if (tasaFalsosPositivos <= 0 || tasaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("La tasa de falsos positivos debe estar entre 0 y 1.");
+        }
+        this.tasaFalsosPositivos = tasaFalsosPositivos;
+        // La suma geométrica de las tasas de todos los tramos no supera el 90% de la tasa configurada; el resto
+        // cubre la diferencia entre la ocupación real de cada tramo lleno y la esperada
+        tramos.add(new Tramo(Math.max(capacidadInicial, CAPACIDAD_MINIMA), tasaFalsosPositivos * MARGEN * (1 - RAZON_AJUSTE)));
+    }
+
+    /**
+     * Agrega un elemento al filtro.
+     * @param elemento El elemento a agregar.
+     */
+    public synchronized void agregar(String elemento) {
+        Tramo ultimo = tramos.get(tramos.size() - 1);
+        if (ultimo.elementos >= ultimo.capacidad) {
+            ultimo = new Tramo(ultimo.capacidad * 2, ultimo.tasa * RAZON_AJUSTE);
+            tramos.add(ultimo);
+        }
+        long hash = hash(elemento);
+        ultimo.agregar(hash, segundoHash(hash));
+    }
+
+    /**
+     * Indica si un elemento podría estar en el filtro.
+     * @param elemento El elemento a consultar.
+     * @return false si el elemento definitivamente no está, true si podría estar.
+     */
+    public boolean podriaContener(String elemento) {
+        long hash = hash(elemento);
+        long paso = segundoHash(hash);
+        for (Tramo tramo : tramos) {
+            if (tramo.contiene(hash, paso)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Devuelve la tasa máxima de falsos positivos configurada.
+     * @return La tasa configurada.
+     */
+    public double getTasaFalsosPositivos() {
+        return tasaFalsosPositivos;
+    }
+
+    /**
+     * Estima la tasa actual de falsos positivos a partir de la ocupación de bits de cada tramo.
+     * @return La tasa estimada.
+     */
+    public double tasaEstimada() {
+        double probabilidadNegativo = 1.0;
+        for (Tramo tramo : tramos) {
+            probabilidadNegativo *= 1.0 - Math.pow(tramo.ocupacion(), tramo.funciones);
+        }
+        return 1.0 - probabilidadNegativo;
+    }
+
+    private static long hash(String elemento) {
+        // FNV-1a de 64 bits sobre los bytes UTF-8, seguido de una mezcla final para repartir los bits
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : elemento.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mezclar(hash);
+    }
+
+    // Segundo hash para el doble hashing, derivado del primero con otra semilla; impar para recorrer todo el tramo
+    private static long segundoHash(long hash) {
+        return mezclar(hash ^ 0x9e3779b97f4a7c15L) | 1L;
+    }
+
+    private static long mezclar(long hash) {
+        // Mezcla final completa de MurmurHash3: cada bit de entrada afecta a todos los de salida
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Tramo de tamaño fijo del filtro escalable.
+     */
+    private static class Tramo {
+        private final int capacidad;
+        private final double tasa;
+        private final long bits; // Cantidad de bits del tramo
+        private final int funciones; // Cantidad de funciones hash
+        private final AtomicLongArray palabras;
+        private volatile int elementos;
+
+        Tramo(int capacidad, double tasa) {
+            this.capacidad = capacidad;
+            this.tasa = tasa;
+            // Se redondea hacia arriba la cantidad de funciones y se calculan los bits para que, con esas funciones
+            // y el tramo lleno, la tasa de falsos positivos (1 - e^(-k*n/m))^k no supere la del tramo
+            this.funciones = Math.max(1, (int) Math.ceil(-Math.log(tasa) / Math.log(2)));
+            this.bits = Math.max(64, (long) Math.ceil(-funciones * (double) capacidad
+                                                      / Math.log(1 - Math.pow(tasa, 1.0 / funciones))));
+            this.palabras = new AtomicLongArray((int) ((bits + 63) / 64));
+        }
+
+        // Solo se invoca desde FiltroBloom.agregar, que está sincronizado
+        void agregar(long h1, long h2) {
+            for (int i = 0; i < funciones; i++) {
+                long bit = posicion(h1, h2, i);
+                int indice = (int) (bit >>> 6);
+                long mascara = 1L << bit;
+                palabras.getAndAccumulate(indice, mascara, (actual, m) -> actual | m);
+            }
+            elementos++;
+        }
+
+        boolean contiene(long h1, long h2) {
+            for (int i = 0; i < funciones; i++) {
+                long bit = posicion(h1, h2, i);
+                if ((palabras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Doble hashing mejorado: el término cúbico evita que las k posiciones de un elemento se repitan
+        // cuando el segundo hash comparte factores con la cantidad de bits
+        private long posicion(long h1, long h2, int i) {
+            return Math.floorMod(h1 + i * h2 + ((long) i * i * i - i) / 6, bits);
+        }
+
+        double ocupacion() {
+            long encendidos = 0;
+            for (int i = 0; i < palabras.length(); i++) {
+                encendidos += Long.bitCount(palabras.get(i));
+            }
+            return (double) encendidos / bits;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Clase que convierte reservas en texto sin usar String.format ni SimpleDateFormat.
+ * Escribe directamente sobre un StringBuilder, formatea la fecha a mano y reutiliza por hilo el calendario y el
+ * buffer, de modo que formatear una fila no genera basura más allá del String final, si es que se pide.
+ * Produce el mismo formato "Reserva{fechaVuelo='dd/MM/yyyy HH:mm', ...}" usado hasta ahora, pero los números
+ * siempre se escriben con dígitos ASCII: String.format y SimpleDateFormat usaban los dígitos de la configuración
+ * regional, por lo que el resultado solo es idéntico al anterior con Locale.ROOT o una configuración de dígitos
+ * latinos.
+ */
+public final class FormateadorReserva {
+
+    private static final ThreadLocal<FormateadorReserva> POR_HILO = ThreadLocal.withInitial(FormateadorReserva::new);
+
+    private final Calendar calendario = Calendar.getInstance();
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    private FormateadorReserva() {
+    }
+
+    /**
+     * Convierte una reserva en texto.
+     * @param reserva La reserva a convertir.
+     * @return La representación en texto de la reserva.
+     */
+    public static String formatear(Reserva reserva) {
+        FormateadorReserva formateador = POR_HILO.get();
+        formateador.buffer.setLength(0);
+        formateador.agregar(reserva, formateador.buffer);
+        return formateador.buffer.toString();
+    }
+
+    /**
+     * Agrega la representación en texto de una reserva al final de un StringBuilder, sin crear objetos intermedios.
+     * @param reserva La reserva a convertir.
+     * @param destino El StringBuilder donde se escribe el texto.
+     */
+    public static void escribir(Reserva reserva, StringBuilder destino) {
+        POR_HILO.get().agregar(reserva, destino);
+    }
+
+    private void agregar(Reserva reserva, StringBuilder destino) {
+        destino.append("Reserva{fechaVuelo='");
+        agregarFecha(reserva.getFechaVuelo(), destino);
+        destino.append("', tipoVuelo=").append(reserva.isTipoVuelo())
+               .append(", cantidadBoletos=").append(reserva.getCantidadBoletos())
+               .append(", aerolinea='").append(reserva.getAerolinea())
+               .append("', username='").append(reserva.getUsername())
+               .append("', numeroTarjeta='").append(reserva.getNumeroTarjeta())
+               .append("', cuotas=").append(reserva.getCuotas())
+               .append(", claseVuelo='").append(reserva.getClaseVuelo())
+               .append("', numeroAsiento='").append(reserva.getNumeroAsiento())
+               .append("', cantidadMaletas=").append(reserva.getCantidadMaletas())
+               .append('}');
+    }
+
+    // Equivalente a SimpleDateFormat("dd/MM/yyyy HH:mm") en la zona horaria por defecto
+    private void agregarFecha(Date fecha, StringBuilder destino) {
+        if (fecha == null) {
+            destino.append("null");
+            return;
+        }
+        calendario.setTime(fecha);
+        agregarDosDigitos(calendario.get(Calendar.DAY_OF_MONTH), destino);
+        destino.append('/');
+        agregarDosDigitos(calendario.get(Calendar.MONTH) + 1, destino);
+        destino.append('/');
+        int anio = calendario.get(Calendar.YEAR);
+        for (int limite = 1000; limite > 1 && anio < limite; limite /= 10) {
+            destino.append('0');
+        }
+        destino.append(anio);
+        destino.append(' ');
+        agregarDosDigitos(calendario.get(Calendar.HOUR_OF_DAY), destino);
+        destino.append(':');
+        agregarDosDigitos(calendario.get(Calendar.MINUTE), destino);
+    }
+
+    private static void agregarDosDigitos(int valor, StringBuilder destino) {
+        destino.append((char) ('0' + valor / 10)).append((char) ('0' + valor % 10));
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Clase que agrupa los datos que Kayak atiende en memoria junto con los índices derivados de ellos: los usuarios
+ * con su filtro de nombres y las reservas, en una cola o en un almacén particionado, con sus contadores por día.
+ * Kayak publica la instantánea en un único campo volatile. Cada recarga arma una instantánea nueva sin tocar la
+ * vigente y la reemplaza con una sola asignación, de modo que una consulta nunca mezcla datos e índices de cargas
+ * distintas. Los cambios individuales, como un registro o una reserva, se aplican sobre las colecciones
+ * concurrentes de la instantánea vigente sin copiarla; Kayak los serializa con las recargas.
+ */
+public class Instantanea {
+
+    private final Queue<Usuario> usuarios;
+    private final FiltroBloom filtroUsuarios; // Filtro de los nombres de usuarios
+    private final Queue<Reserva> reservas; // Reservas del modo de un solo archivo
+    private final AlmacenParticionado almacen; // Almacén particionado de reservas, null si se usa un solo archivo
+    private final ContadorReservas contadores; // Boletos por aerolínea, día y tipo de vuelo
+
+    /**
+     * Constructor para la clase Instantanea.
+     * @param usuarios Los usuarios cargados.
+     * @param reservas Las reservas cargadas.
+     * @param tasaFiltro La tasa de falsos positivos del filtro de nombres de usuario.
+     */
+    public Instantanea(Collection<Usuario> usuarios, Collection<Reserva> reservas, double tasaFiltro) {
+        this(new ConcurrentLinkedQueue<>(usuarios), construirFiltro(usuarios, tasaFiltro),
+             new ConcurrentLinkedQueue<>(reservas), null, construirContadores(reservas));
+    }
+
+    private Instantanea(Queue<Usuario> usuarios, FiltroBloom filtroUsuarios, Queue<Reserva> reservas,
+                        AlmacenParticionado almacen, ContadorReservas contadores) {
+        this.usuarios = usuarios;
+        this.filtroUsuarios = filtroUsuarios;
+        this.reservas = reservas;
+        this.almacen = almacen;
+        this.contadores = contadores;
+    }
+
+    /**
+     * Crea una instantánea con otros usuarios y su filtro, conservando las reservas de esta.
+     * @param usuariosCargados Los usuarios de la nueva instantánea.
+     * @param tasaFiltro La tasa de falsos positivos del filtro de nombres de usuario.
+     * @return La nueva instantánea.
+     */
+    public Instantanea conUsuarios(Collection<Usuario> usuariosCargados, double tasaFiltro) {
+        return new Instantanea(new ConcurrentLinkedQueue<>(usuariosCargados), construirFiltro(usuariosCargados, tasaFiltro),
+                               reservas, almacen, contadores);
+    }
+
+    /**
+     * Crea una instantánea con otras reservas y sus contadores, conservando los usuarios de esta.
+     * @param reservasCargadas Las reservas de la nueva instantánea.
+     * @return La nueva instantánea.
+     */
+    public Instantanea conReservas(Collection<Reserva> reservasCargadas) {
+        return new Instantanea(usuarios, filtroUsuarios, new ConcurrentLinkedQueue<>(reservasCargadas), almacen,
+                               construirContadores(reservasCargadas));
+    }
+
+    /**
+     * Crea una instantánea cuyas reservas son las de un almacén particionado ya cargado, con sus contadores,
+     * conservando los usuarios de esta.
+     * @param almacenCargado El almacén particionado completamente cargado.
+     * @return La nueva instantánea.
+     */
+    public Instantanea conAlmacen(AlmacenParticionado almacenCargado) {
+        return new Instantanea(usuarios, filtroUsuarios, new ConcurrentLinkedQueue<>(), almacenCargado,
+                               construirContadores(almacenCargado.todas()));
+    }
+
+    /**
+     * Crea una instantánea con el filtro de nombres reconstruido con otra tasa de falsos positivos.
+     * @param tasaFiltro La nueva tasa de falsos positivos.
+     * @return La nueva instantánea.
+     */
+    public Instantanea conFiltro(double tasaFiltro) {
+        return new Instantanea(usuarios, construirFiltro(usuarios, tasaFiltro), reservas, almacen, contadores);
+    }
+
+    /**
+     * Obtiene los usuarios.
+     * @return La colección concurrente de usuarios.
+     */
+    public Queue<Usuario> getUsuarios() {
+        return usuarios;
+    }
+
+    /**
+     * Obtiene el filtro de nombres de usuario.
+     * @return El filtro de nombres.
+     */
+    public FiltroBloom getFiltroUsuarios() {
+        return filtroUsuarios;
+    }
+
+    /**
+     * Obtiene las reservas del modo de un solo archivo.
+     * @return La colección concurrente de reservas.
+     */
+    public Queue<Reserva> getReservas() {
+        return reservas;
+    }
+
+    /**
+     * Obtiene el almacén particionado de reservas.
+     * @return El almacén, o null si se usa un solo archivo de reservas.
+     */
+    public AlmacenParticionado getAlmacen() {
+        return almacen;
+    }
+
+    /**
+     * Obtiene los contadores de boletos por día.
+     * @return Los contadores.
+     */
+    public ContadorReservas getContadores() {
+        return contadores;
+    }
+
+    private static FiltroBloom construirFiltro(Collection<Usuario> usuariosActuales, double tasa) {
+        FiltroBloom filtro = new FiltroBloom(usuariosActuales.size() * 2, tasa);
+        for (Usuario usuario : usuariosActuales) {
+            filtro.agregar(usuario.getUsername());
+        }
+        return filtro;
+    }
+
+    private static ContadorReservas construirContadores(Collection<Reserva> reservasActuales) {
+        ContadorReservas contadores = new ContadorReservas();
+        contadores.reconstruir(reservasActuales);
+        return contadores;
+    }
+}
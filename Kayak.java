@@ -1,8 +1,22 @@
 import java.io.*;
 import java.util.*;
+import java.net.InetAddress;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 
 /**
@@ -10,9 +24,30 @@ import java.nio.file.Files;
  */
 public class Kayak implements IReserva {
 
-    private List<Usuario> usuarios; // Lista para mantener el estado de todos los usuarios
-    private List<Reserva> reservas; // Lista para mantener el estado de todas las reservas
+    private static final int INTENTOS_RECARGA = 3; // Lecturas sin bloqueo antes de releer con el bloqueo tomado
+
+    private volatile Instantanea datos; // Usuarios, reservas y sus índices, publicados juntos
     private Usuario usuarioActual; // Usuario actualmente autenticado
+    private volatile double tasaFiltroUsuarios = 0.01; // Tasa de falsos positivos del filtro de usuarios
+    private final LongAdder consultasFiltro = new LongAdder(); // Verificaciones de nombre de usuario
+    private final LongAdder descartesFiltro = new LongAdder(); // Verificaciones resueltas solo con el filtro
+    private final LongAdder falsosPositivosFiltro = new LongAdder(); // Positivos del filtro que no existían
+    private volatile double ultimaExportacionMBs; // Rendimiento de la última exportación comprimida
+    private volatile double ultimaImportacionMBs; // Rendimiento de la última importación comprimida
+    private volatile ControlAdmision admision = new ControlAdmision(1000, 2000, 5, 10); // Límites de solicitudes
+    private volatile ReplicadorPrimario replicador; // Envía los cambios a los seguidores, null si no es primaria
+    private volatile SeguidorReplicacion seguidor; // Recibe los cambios del primario, null si no es seguidora
+    private volatile boolean soloLectura; // true mientras la instancia sigue a un primario
+    private final ArchivoHistorico historico = new ArchivoHistorico(Paths.get("archivo")); // Reservas de vuelos pasados
+    private final ExecutorService recargas = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "kayak-recarga");
+        hilo.setDaemon(true);
+        return hilo;
+    }); // Hilo de fondo para las recargas de datos
+    private final Map<String, FileTime> escriturasPropias = new ConcurrentHashMap<>(); // Última versión escrita de cada archivo
+    private final AtomicLong escrituras = new AtomicLong(); // Escrituras de datos hechas por esta instancia
+    // Las reservas y cancelaciones en particiones toman la lectura; reemplazar o vaciar el almacén, la escritura
+    private final ReadWriteLock reemplazoAlmacen = new ReentrantReadWriteLock();
     private final String archivoUsuarios = "usuarios.csv";
     private final String archivoReservas = "reservas.csv";
 
@@ -22,43 +57,35 @@ public class Kayak implements IReserva {
      * @throws IOException Si hay un error de entrada/salida al acceder a los archivos.
      */
     public Kayak() throws IOException {
-        usuarios = cargarUsuarios(archivoUsuarios);
-        reservas = cargarReservas(archivoReservas);
-    }
-
-    /**
-     * Carga la lista de usuarios desde el archivo CSV.
-     * @throws IOException Si ocurre un error de E/S al leer el archivo.
-     */
-    private void cargarUsuarios() throws IOException {
-        List<Usuario> usuariosCargados = new ArrayList<>();
-        Path path = Paths.get(archivoUsuarios);
-        if (Files.exists(path)) {
-            try (BufferedReader br = Files.newBufferedReader(path)) {
-                String linea;
-                while ((linea = br.readLine()) != null) {
-                    String[] datos = linea.split(",");
-                    if (datos.length >= 3) { // Asegúrese de que haya al menos 3 columnas
-                        Usuario usuario = new Usuario(datos[0], datos[1], datos[2].equalsIgnoreCase("premium"));
-                        usuariosCargados.add(usuario);
-                    }
-                }
-                this.usuarios = usuariosCargados;
-                System.out.println("Usuarios cargados exitosamente desde " + archivoUsuarios);
-            }
-        } else {
-            throw new FileNotFoundException("El archivo " + archivoUsuarios + " no se encontró.");
+        // Si el almacenamiento particionado se activó en una ejecución anterior, sigue activo
+        AlmacenParticionado almacen = AlmacenParticionado.abrirExistente("reservas");
+        if (almacen == null) {
+            datos = new Instantanea(cargarUsuarios(archivoUsuarios), cargarReservas(archivoReservas), tasaFiltroUsuarios);
+            return;
+        }
+        // Al activar las particiones reservas.csv queda vacío; si tiene reservas, se hicieron sin ellas
+        if (Files.exists(Paths.get(archivoReservas)) && !cargarReservas(archivoReservas).isEmpty()) {
+            throw new IOException(archivoReservas + " tiene reservas, pero el almacenamiento particionado está activo."
+                    + " Expórtelas e impórtelas con las particiones activas, o vacíe el archivo si ya están en ellas.");
         }
+        datos = new Instantanea(cargarUsuarios(archivoUsuarios), Collections.emptyList(), tasaFiltroUsuarios).conAlmacen(almacen);
+        System.out.println("Almacenamiento particionado activo con " + almacen.getCantidad() + " particiones.");
     }
 
     // Implementación de los métodos de la interfaz IReserva
 
     @Override
     public void login(String username, String password) {
+        // Rechazar de inmediato si se supera el límite de solicitudes
+        if (!admision.admitir(ControlAdmision.Operacion.LOGIN, username)) {
+            System.out.println("Demasiadas solicitudes de inicio de sesión. Intente más tarde.");
+            return;
+        }
+
         // Lógica para autenticar al usuario y asignarlo a usuarioActual
-        Optional<Usuario> usuario = usuarios.stream()
-                                            .filter(u -> u.getUsername().equals(username) && u.getPassword().equals(password))
-                                            .findFirst();
+        Optional<Usuario> usuario = datos.getUsuarios().stream()
+                                                  .filter(u -> u.getUsername().equals(username) && u.getPassword().equals(password))
+                                                  .findFirst();
         if (usuario.isPresent()) {
             usuarioActual = usuario.get();
             System.out.println("Inicio de sesión exitoso para el usuario: " + username);
@@ -75,9 +102,41 @@ public class Kayak implements IReserva {
      */
     @Override
     public void registroUsuario(String username, String password, String tipo) {
-        // Verificar si el nombre de usuario ya existe en la lista de usuarios
-        boolean usuarioExiste = usuarios.stream()
-                                        .anyMatch(u -> u.getUsername().equals(username));
+        // Una instancia seguidora solo atiende consultas
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
+        // Rechazar de inmediato si se supera el límite de solicitudes, sin esperar el bloqueo de los datos
+        if (!admision.admitir(ControlAdmision.Operacion.REGISTRO, username)) {
+            System.out.println("Demasiadas solicitudes de registro. Intente más tarde.");
+            return;
+        }
+
+        registrarUsuario(username, password, tipo);
+    }
+
+    /**
+     * Agrega un usuario ya admitido y reescribe usuarios.csv.
+     * @param username El nombre de usuario para el nuevo registro.
+     * @param password La contraseña para el nuevo usuario.
+     * @param tipo El tipo de usuario (base o premium).
+     */
+    private synchronized void registrarUsuario(String username, String password, String tipo) {
+        // Verificar si el nombre de usuario ya existe; si el filtro lo descarta no hace falta recorrer la lista
+        Instantanea actual = datos;
+        FiltroBloom filtro = actual.getFiltroUsuarios();
+        boolean usuarioExiste = false;
+        consultasFiltro.increment();
+        if (filtro.podriaContener(username)) {
+            usuarioExiste = actual.getUsuarios().stream()
+                                  .anyMatch(u -> u.getUsername().equals(username));
+            if (!usuarioExiste) {
+                falsosPositivosFiltro.increment();
+            }
+        } else {
+            descartesFiltro.increment();
+        }
         if (usuarioExiste) {
             // Si el usuario ya existe, lanzar una excepción o manejarlo según sea necesario
             System.out.println("El nombre de usuario ya está en uso. Por favor, elige otro.");
@@ -93,7 +152,9 @@ public class Kayak implements IReserva {
         // Crear un nuevo usuario y agregarlo a la lista de usuarios
         boolean esPremium = tipo.equalsIgnoreCase("premium");
         Usuario nuevoUsuario = new Usuario(username, password, esPremium);
-        usuarios.add(nuevoUsuario);
+        filtro.agregar(username);
+        actual.getUsuarios().add(nuevoUsuario);
+        publicarReplicacion(EntradaReplicacion.Tipo.REGISTRO, username, password, esPremium ? "premium" : "base");
 
         // Guardar la lista de usuarios en el archivo CSV
         try {
@@ -111,7 +172,12 @@ public class Kayak implements IReserva {
      * @param nuevaPassword La nueva contraseña del usuario.
      */
     @Override
-    public void cambiarPassword(String nuevaPassword) {
+    public synchronized void cambiarPassword(String nuevaPassword) {
+        // Una instancia seguidora solo atiende consultas
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
         // Verificar si hay un usuario actualmente autenticado
         if (usuarioActual == null) {
             System.out.println("No hay ningún usuario autenticado en este momento.");
@@ -122,10 +188,11 @@ public class Kayak implements IReserva {
         usuarioActual.setPassword(nuevaPassword);
 
         // Encontrar el usuario en la lista de usuarios y actualizar su información
-        usuarios.stream()
+        datos.getUsuarios().stream()
                 .filter(u -> u.getUsername().equals(usuarioActual.getUsername()))
                 .findFirst()
                 .ifPresent(u -> u.setPassword(nuevaPassword));
+        publicarReplicacion(EntradaReplicacion.Tipo.PASSWORD, usuarioActual.getUsername(), nuevaPassword);
 
         // Opcional: Guardar la lista actualizada de usuarios en el archivo CSV
         try {
@@ -142,7 +209,12 @@ public class Kayak implements IReserva {
      * Cambia el tipo de usuario de base a premium y viceversa.
      */
     @Override
-    public void cambiarTipoUsuario() {
+    public synchronized void cambiarTipoUsuario() {
+        // Una instancia seguidora solo atiende consultas
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
         // Verifica si hay un usuario actualmente autenticado
         if (usuarioActual == null) {
             System.out.println("No hay ningún usuario autenticado en este momento.");
@@ -150,66 +222,48 @@ public class Kayak implements IReserva {
         }
 
         // Cambiar el tipo de usuario de base a premium y viceversa
-        usuarioActual.setTipo(usuarioActual.getTipo().equals("base") ? "premium" : "base");
+        usuarioActual.setPremium(!usuarioActual.isPremium());
+        publicarReplicacion(EntradaReplicacion.Tipo.TIPO_USUARIO, usuarioActual.getUsername(),
+                            usuarioActual.isPremium() ? "premium" : "base");
 
         // Actualizar la información del usuario en la lista y el archivo CSV
-        actualizarUsuario(usuarioActual);
+        try {
+            actualizarUsuario(usuarioActual);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Error al guardar el tipo de usuario en el archivo.");
+        }
         System.out.println("Tipo de usuario cambiado exitosamente para el usuario: " + usuarioActual.getUsername());
     }
 
     /**
-     * Actualiza la información de un usuario en el archivo CSV.
+     * Actualiza la información de un usuario en la lista de usuarios y en el archivo CSV.
      * @param usuarioActualizado El usuario cuya información se debe actualizar.
      * @throws IOException Si ocurre un error de E/S al escribir en el archivo.
      */
     private void actualizarUsuario(Usuario usuarioActualizado) throws IOException {
-        // Crea una lista temporal para almacenar los usuarios actualizados
-        List<Usuario> usuariosActualizados = new ArrayList<>();
-
-        // Lee el archivo existente y construye la lista actualizada
-        Path path = Paths.get(archivoUsuarios);
-        if (Files.exists(path)) {
-            try (BufferedReader br = Files.newBufferedReader(path)) {
-                String linea;
-                while ((linea = br.readLine()) != null) {
-                    String[] datos = linea.split(",");
-                    // Crea un nuevo usuario basado en la línea leída
-                    Usuario usuario = new Usuario(datos[0], datos[1], datos[2].equalsIgnoreCase("premium"));
-                    // Si el usuario leído coincide con el usuario actualizado, usa el usuario actualizado
-                    if (usuario.getUsername().equals(usuarioActualizado.getUsername())) {
-                        usuario = usuarioActualizado;
-                    }
-                    usuariosActualizados.add(usuario);
-                }
-            }
-        } else {
-            throw new FileNotFoundException("El archivo " + archivoUsuarios + " no se encontró.");
-        }
+        // El usuario autenticado puede venir de una carga anterior; se actualiza el de la lista vigente
+        datos.getUsuarios().stream()
+                .filter(u -> u.getUsername().equals(usuarioActualizado.getUsername()))
+                .findFirst()
+                .ifPresent(u -> u.setPremium(usuarioActualizado.isPremium()));
 
-        // Escribe la lista actualizada de usuarios de vuelta en el archivo
-        try (BufferedWriter bw = Files.newBufferedWriter(path)) {
-            for (Usuario usuario : usuariosActualizados) {
-                String linea = usuario.getUsername() + "," + usuario.getPassword() + "," + (usuario.isPremium() ? "premium" : "base");
-                bw.write(linea);
-                bw.newLine();
-            }
-            System.out.println("Información del usuario actualizada con éxito en " + archivoUsuarios);
-        }
+        // Reemplaza el archivo completo con la lista actualizada
+        guardarUsuarios();
+        System.out.println("Información del usuario actualizada con éxito en " + archivoUsuarios);
     }
 
     /**
-     * Guarda la lista actual de usuarios en el archivo CSV.
+     * Guarda la lista actual de usuarios en el archivo CSV, con una línea de encabezado y el formato que lee
+     * la carga de usuarios. El archivo se reemplaza de forma atómica.
      * @throws IOException Si ocurre un error de E/S al escribir en el archivo.
      */
     private void guardarUsuarios() throws IOException {
-        try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(archivoUsuarios))) {
-            for (Usuario usuario : usuarios) {
-                String linea = usuario.getUsername() + "," + usuario.getPassword() + "," + (usuario.isPremium() ? "premium" : "base");
-                bw.write(linea);
-                bw.newLine();
-            }
-            System.out.println("Usuarios guardados exitosamente en " + archivoUsuarios);
-        }
+        Collection<Usuario> actuales = datos.getUsuarios();
+        escribirArchivoPropio(archivoUsuarios, () -> Stream.concat(Stream.of("username,password,tipo"),
+                actuales.stream().map(u -> u.getUsername() + "," + u.getPassword() + "," + (u.isPremium() ? "premium" : "base")))
+                .iterator());
+        System.out.println("Usuarios guardados exitosamente en " + archivoUsuarios);
     }
 
     /**
@@ -222,15 +276,334 @@ public class Kayak implements IReserva {
      */
     @Override
     public void reservacion(String fechaVuelo, boolean tipoVuelo, int cantidadBoletos, String aerolinea, String username) {
+        // Una instancia seguidora solo atiende consultas
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
+        // Rechazar de inmediato si se supera el límite de solicitudes
+        if (!admision.admitir(ControlAdmision.Operacion.RESERVACION, username)) {
+            System.out.println("Demasiadas solicitudes de reserva. Intente más tarde.");
+            return;
+        }
+
         // Crear una nueva reserva con los detalles proporcionados
         Reserva nuevaReserva = new Reserva(fechaVuelo, tipoVuelo, cantidadBoletos, aerolinea, username);
 
+        // En modo particionado solo se bloquea la partición de la reserva
+        if (!reservarEnArchivo(nuevaReserva)) {
+            reservarEnParticion(nuevaReserva);
+        }
+    }
+
+    /**
+     * Agrega una reserva en el modo de un solo archivo y reescribe reservas.csv.
+     * @param nuevaReserva La reserva a agregar.
+     * @return false si el almacenamiento particionado está activo y la reserva no se agregó, true en otro caso.
+     */
+    private synchronized boolean reservarEnArchivo(Reserva nuevaReserva) {
+        Instantanea actual = datos;
+        if (actual.getAlmacen() != null) {
+            return false;
+        }
+
         // Añadir la reserva a la lista de reservas
-        reservas.add(nuevaReserva);
+        actual.getReservas().add(nuevaReserva);
 
         // Guardar la nueva lista de reservas en el archivo CSV
         guardarReservas();
-        System.out.println("Reserva creada exitosamente para el usuario: " + username);
+        actual.getContadores().registrar(nuevaReserva);
+        publicarReplicacion(EntradaReplicacion.Tipo.RESERVA, nuevaReserva.aLineaCsv());
+        System.out.println("Reserva creada exitosamente para el usuario: " + nuevaReserva.getUsername());
+        return true;
+    }
+
+    /**
+     * Agrega una reserva en el modo particionado. Solo se bloquea y se reescribe la partición de la reserva, de
+     * modo que las reservas de otras particiones avanzan al mismo tiempo; el bloqueo de Kayak no se toma.
+     * @param nuevaReserva La reserva a agregar.
+     */
+    private void reservarEnParticion(Reserva nuevaReserva) {
+        reemplazoAlmacen.readLock().lock();
+        try {
+            Instantanea actual = datos;
+            // El cambio se publica con la partición bloqueada, antes de que otro hilo pueda cancelar la reserva
+            actual.getAlmacen().agregar(nuevaReserva,
+                    () -> publicarReplicacion(EntradaReplicacion.Tipo.RESERVA, nuevaReserva.aLineaCsv()));
+            escrituras.incrementAndGet();
+            actual.getContadores().registrar(nuevaReserva);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Error al guardar la reserva en su partición.");
+            return;
+        } finally {
+            reemplazoAlmacen.readLock().unlock();
+        }
+        System.out.println("Reserva creada exitosamente para el usuario: " + nuevaReserva.getUsername());
+    }
+
+    /**
+     * Cancela una reserva existente y la elimina del sistema de persistencia. La reserva se identifica con los
+     * mismos datos con que se creó; si el usuario tiene varias reservas idénticas solo se cancela una.
+     * @param fechaVuelo La fecha del vuelo de la reserva.
+     * @param tipoVuelo El tipo de vuelo (true para premium, false para normal).
+     * @param cantidadBoletos La cantidad de boletos de la reserva.
+     * @param aerolinea La aerolínea de la reserva.
+     * @param username El nombre de usuario que hizo la reserva.
+     */
+    public void cancelarReservacion(String fechaVuelo, boolean tipoVuelo, int cantidadBoletos, String aerolinea, String username) {
+        // Una instancia seguidora solo atiende consultas
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
+        // La reserva se busca comparando sus campos con los datos indicados; la fecha se interpreta una sola vez
+        Reserva buscada = new Reserva(fechaVuelo, tipoVuelo, cantidadBoletos, aerolinea, username);
+        if (!cancelarEnArchivo(buscada)) {
+            cancelarEnParticion(buscada);
+        }
+    }
+
+    /**
+     * Cancela una reserva en el modo de un solo archivo y reescribe reservas.csv.
+     * @param buscada Una reserva con los datos de la que se cancela.
+     * @return false si el almacenamiento particionado está activo y no se buscó la reserva, true en otro caso.
+     */
+    private synchronized boolean cancelarEnArchivo(Reserva buscada) {
+        Instantanea actual = datos;
+        if (actual.getAlmacen() != null) {
+            return false;
+        }
+        Optional<Reserva> encontrada = actual.getReservas().stream()
+                                             .filter(buscada::mismosDatos)
+                                             .findFirst();
+        if (!encontrada.isPresent() || !actual.getReservas().remove(encontrada.get())) {
+            System.out.println("La reserva indicada no existe.");
+            return true;
+        }
+        Reserva reserva = encontrada.get();
+
+        // Guardar la lista de reservas sin la reserva cancelada
+        guardarReservas();
+        reserva.cancelarReserva();
+        actual.getContadores().cancelar(reserva);
+        publicarReplicacion(EntradaReplicacion.Tipo.CANCELACION, reserva.aLineaCsv());
+        System.out.println("Reserva cancelada exitosamente para el usuario: " + reserva.getUsername());
+        return true;
+    }
+
+    /**
+     * Cancela una reserva en el modo particionado, bloqueando y reescribiendo solo su partición.
+     * @param buscada Una reserva con los datos de la que se cancela.
+     */
+    private void cancelarEnParticion(Reserva buscada) {
+        Reserva reserva;
+        reemplazoAlmacen.readLock().lock();
+        try {
+            Instantanea actual = datos;
+            AlmacenParticionado almacen = actual.getAlmacen();
+            while (true) {
+                Optional<Reserva> encontrada = almacen.buscarPorUsuario(buscada.getUsername()).stream()
+                                                      .filter(buscada::mismosDatos)
+                                                      .findFirst();
+                if (!encontrada.isPresent()) {
+                    System.out.println("La reserva indicada no existe.");
+                    return;
+                }
+                reserva = encontrada.get();
+                Reserva cancelada = reserva;
+                if (almacen.eliminar(cancelada,
+                        () -> publicarReplicacion(EntradaReplicacion.Tipo.CANCELACION, cancelada.aLineaCsv()))) {
+                    break;
+                }
+                // Otro hilo canceló la misma reserva entre la búsqueda y el bloqueo; se busca otra idéntica
+            }
+            escrituras.incrementAndGet();
+            reserva.cancelarReserva();
+            actual.getContadores().cancelar(reserva);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Error al guardar la cancelación en su partición.");
+            return;
+        } finally {
+            reemplazoAlmacen.readLock().unlock();
+        }
+        System.out.println("Reserva cancelada exitosamente para el usuario: " + reserva.getUsername());
+    }
+
+    /**
+     * Mueve al histórico comprimido las reservas cuyo vuelo es anterior al horizonte indicado,
+     * dejando en memoria solo los vuelos próximos y recientes. Los contadores por día dejan de
+     * incluir las reservas archivadas.
+     * @param diasHorizonte La cantidad de días hacia atrás que se mantienen en memoria.
+     * @throws IOException Si ocurre un error de E/S al escribir el histórico o las reservas.
+     */
+    public synchronized void archivarReservas(int diasHorizonte) throws IOException {
+        // Una instancia seguidora solo atiende consultas
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
+        // Las reservas y cancelaciones en particiones no toman el bloqueo de Kayak; se excluyen también para que
+        // ninguna reserva cambie entre que se copia al histórico y se quita de su partición
+        reemplazoAlmacen.writeLock().lock();
+        try {
+            archivarAnteriores(diasHorizonte);
+        } finally {
+            reemplazoAlmacen.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mueve al histórico las reservas anteriores al horizonte. Debe llamarse con el bloqueo de Kayak y el de
+     * escritura del almacén tomados.
+     * @param diasHorizonte La cantidad de días hacia atrás que se mantienen en memoria.
+     * @throws IOException Si ocurre un error de E/S al escribir el histórico o las reservas.
+     */
+    private void archivarAnteriores(int diasHorizonte) throws IOException {
+        Calendar limite = Calendar.getInstance();
+        limite.add(Calendar.DAY_OF_MONTH, -diasHorizonte);
+        Instantanea actual = datos;
+        AlmacenParticionado almacen = actual.getAlmacen();
+        Collection<Reserva> actuales = almacen != null ? almacen.todas() : actual.getReservas();
+        List<Reserva> antiguas = actuales.stream()
+                                         .filter(r -> r.getFechaVuelo() != null && r.getFechaVuelo().before(limite.getTime()))
+                                         .collect(Collectors.toList());
+        if (antiguas.isEmpty()) {
+            System.out.println("No hay reservas para archivar.");
+            return;
+        }
+
+        // Cada mes se quita de las reservas solo si quedó escrito en el histórico. Si falla un mes, los anteriores
+        // igual se quitan. Si lo que falla es reescribir las reservas, las archivadas vuelven con la próxima carga,
+        // pero el histórico omite las que ya tiene y un nuevo intento no las duplica
+        Set<Reserva> archivadas = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            historico.archivar(antiguas, archivadas::addAll);
+        } catch (IOException e) {
+            try {
+                quitarArchivadas(actual, archivadas);
+            } catch (IOException alQuitar) {
+                e.addSuppressed(alQuitar);
+            }
+            throw e;
+        }
+        quitarArchivadas(actual, archivadas);
+    }
+
+    /**
+     * Quita de las reservas vigentes las que ya quedaron en el histórico y reescribe sus archivos.
+     * @param actual La instantánea de la que se quitan.
+     * @param archivadas Las reservas archivadas.
+     * @throws IOException Si ocurre un error de E/S al reescribir las reservas; igual quedan quitadas en memoria.
+     */
+    private void quitarArchivadas(Instantanea actual, Set<Reserva> archivadas) throws IOException {
+        if (archivadas.isEmpty()) {
+            return;
+        }
+        archivadas.forEach(actual.getContadores()::cancelar);
+        System.out.println(archivadas.size() + " reservas archivadas en el histórico.");
+        AlmacenParticionado almacen = actual.getAlmacen();
+        try {
+            if (almacen != null) {
+                try {
+                    almacen.eliminarTodas(archivadas);
+                } finally {
+                    escrituras.incrementAndGet();
+                }
+            } else {
+                actual.getReservas().removeIf(archivadas::contains);
+                escribirReservas();
+            }
+        } finally {
+            // Las reservas ya no están en memoria aunque falle la escritura; los seguidores reciben el resultado
+            publicarEstado();
+        }
+    }
+
+    /**
+     * Devuelve el itinerario histórico del usuario actual entre dos fechas, incluyendo las reservas archivadas.
+     * Solo se leen de disco los meses archivados que caen dentro del rango.
+     * @param desde El inicio del rango (inclusive).
+     * @param hasta El fin del rango (inclusive).
+     * @return Un string que representa el itinerario histórico del usuario.
+     * @throws IOException Si ocurre un error de E/S al leer el histórico.
+     */
+    public String itinerarioHistorico(Date desde, Date hasta) throws IOException {
+        if (usuarioActual == null) {
+            return "No hay un usuario autenticado.";
+        }
+        String username = usuarioActual.getUsername();
+        StringBuilder itinerario = new StringBuilder("Itinerario histórico para " + username + ":\n");
+        List<Reserva> encontradas = new ArrayList<>(historico.buscar(username, desde, hasta));
+        Instantanea actual = datos;
+        Collection<Reserva> actuales = actual.getAlmacen() != null ? actual.getAlmacen().buscarPorUsuario(username)
+                                                                   : actual.getReservas();
+        actuales.stream()
+                .filter(r -> r.getUsername().equals(username) && r.getFechaVuelo() != null
+                        && !r.getFechaVuelo().before(desde) && !r.getFechaVuelo().after(hasta))
+                .forEach(encontradas::add);
+        encontradas.sort(Comparator.comparing(Reserva::getFechaVuelo));
+        for (Reserva reserva : encontradas) {
+            FormateadorReserva.escribir(reserva, itinerario);
+            itinerario.append("\n");
+        }
+        return itinerario.toString();
+    }
+
+    /**
+     * Devuelve la cantidad de boletos reservados para una aerolínea en un día y tipo de vuelo dados.
+     * @param aerolinea La aerolínea a consultar.
+     * @param dia Cualquier instante dentro del día de vuelo a consultar.
+     * @param tipoVuelo El tipo de vuelo (true para premium, false para normal).
+     * @return La cantidad de boletos reservados.
+     */
+    public long boletosPorDia(String aerolinea, Date dia, boolean tipoVuelo) {
+        return datos.getContadores().boletos(aerolinea, dia, tipoVuelo);
+    }
+
+    /**
+     * Confirma la última reserva del usuario actual con los datos de pago y de viaje indicados. Estos datos solo
+     * se guardan en memoria, y de la tarjeta se conservan únicamente los últimos cuatro dígitos.
+     * @param numeroTarjeta El número de la tarjeta de crédito para el pago.
+     * @param cuotas El número de cuotas para el pago.
+     * @param claseVuelo La clase del vuelo (económica, negocios, etc.).
+     * @param numeroAsiento El número de asiento en el vuelo.
+     * @param cantidadMaletas La cantidad de maletas que se llevarán en el vuelo.
+     */
+    @Override
+    public synchronized void confirmacion(String numeroTarjeta, int cuotas, String claseVuelo, String numeroAsiento, int cantidadMaletas) {
+        // Una instancia seguidora solo atiende consultas
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
+        if (usuarioActual == null) {
+            System.out.println("No hay ningún usuario autenticado en este momento.");
+            return;
+        }
+        String username = usuarioActual.getUsername();
+        Instantanea actual = datos;
+        Collection<Reserva> fuente = actual.getAlmacen() != null ? actual.getAlmacen().buscarPorUsuario(username)
+                                                                 : actual.getReservas();
+        Reserva ultima = null;
+        for (Reserva reserva : fuente) {
+            if (reserva.getUsername().equals(username)) {
+                ultima = reserva;
+            }
+        }
+        if (ultima == null) {
+            System.out.println("El usuario " + username + " no tiene reservas para confirmar.");
+            return;
+        }
+
+        String tarjeta = numeroTarjeta.length() > 4 ? numeroTarjeta.substring(numeroTarjeta.length() - 4) : numeroTarjeta;
+        ultima.setNumeroTarjeta("****" + tarjeta);
+        ultima.setCuotas(cuotas);
+        ultima.setClaseVuelo(claseVuelo);
+        ultima.setNumeroAsiento(numeroAsiento);
+        ultima.setCantidadMaletas(cantidadMaletas);
+        System.out.println("Reserva confirmada para el usuario " + username + " con la tarjeta terminada en " + tarjeta);
     }
 
     /**
@@ -247,7 +620,16 @@ public class Kayak implements IReserva {
      * Guarda los detalles de todas las reservas en el sistema de persistencia.
      */
     @Override
-    public void guardarReservacion() {
+    public synchronized void guardarReservacion() {
+        AlmacenParticionado almacen = datos.getAlmacen();
+        if (almacen != null) {
+            try {
+                almacen.guardar();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
         // Guardar la lista de reservas en el archivo CSV
         guardarReservas();
     }
@@ -257,17 +639,30 @@ public class Kayak implements IReserva {
      */
     @Override
     public void leerReservacion() {
+        // Una instancia seguidora recibe las reservas del primario, no de los archivos
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
         // Leer las reservas del archivo CSV y actualizar la lista de reservas
-        reservas = cargarReservas("reservas.csv");
+        try {
+            recargar(false, true);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
      * Guarda los detalles de todos los usuarios en el sistema de persistencia.
      */
     @Override
-    public void guardarUsuario() {
+    public synchronized void guardarUsuario() {
         // Guardar la lista de usuarios en el archivo CSV
-        guardarUsuarios();
+        try {
+            guardarUsuarios();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -275,57 +670,615 @@ public class Kayak implements IReserva {
      */
     @Override
     public void leerUsuario() {
+        // Una instancia seguidora recibe los usuarios del primario, no de los archivos
+        if (rechazarEnSoloLectura()) {
+            return;
+        }
+
         // Leer los usuarios del archivo CSV y actualizar la lista de usuarios
-        usuarios = cargarUsuarios("usuarios.csv");
+        try {
+            recargar(true, false);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Recarga usuarios y reservas desde los archivos CSV en un hilo de fondo.
+     * Las consultas en curso siguen atendiéndose con los datos anteriores hasta que los nuevos
+     * están completamente cargados y se publican. Los cambios siguen atendiéndose mientras se leen los archivos;
+     * si alguno se aplica durante la lectura, los archivos se vuelven a leer para no perderlo.
+     * @return Un futuro que se completa cuando los nuevos datos han sido publicados, o que falla con
+     *         IllegalStateException si la instancia sigue a una primaria.
+     */
+    public CompletableFuture<Void> recargarEnSegundoPlano() {
+        if (soloLectura) {
+            // Una instancia seguidora recibe los datos del primario; recargar los archivos los desincronizaría
+            CompletableFuture<Void> rechazada = new CompletableFuture<>();
+            rechazada.completeExceptionally(new IllegalStateException(
+                    "Una instancia seguidora no recarga los archivos; recibe los datos de la primaria."));
+            return rechazada;
+        }
+        return CompletableFuture.runAsync(() -> {
+            try {
+                recargar(true, true);
+                System.out.println("Datos recargados exitosamente desde " + archivoUsuarios + " y " + archivoReservas);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, recargas);
     }
 
     /**
-     * Carga los datos de los usuarios y reservas de los archivos CSV.
+     * Vigila los archivos CSV y recarga los datos en segundo plano cuando otro proceso los modifica.
+     * Las escrituras de esta misma instancia no provocan recargas, y varias modificaciones seguidas
+     * provocan una sola. Mientras la instancia sigue a una primaria, los cambios en los archivos se ignoran.
+     * @throws IOException Si no se puede iniciar la vigilancia del directorio.
      */
-    private void cargarDatos() {
-        cargarUsuarios();
-        cargarReservas();
+    public void vigilarArchivos() throws IOException {
+        Path directorio = Paths.get(archivoUsuarios).toAbsolutePath().getParent();
+        Set<String> archivos = new HashSet<>(Arrays.asList(archivoUsuarios, archivoReservas));
+        new VigilanteArchivos(directorio, archivos, cambiados -> {
+            if (soloLectura || cambiados.stream().allMatch(this::esEscrituraPropia)) {
+                return;
+            }
+            recargarEnSegundoPlano().exceptionally(e -> {
+                System.out.println("Error al recargar los datos: " + e.getMessage());
+                return null;
+            });
+        }).iniciar();
     }
 
     /**
-     * Carga los usuarios desde el archivo CSV.
+     * Exporta los usuarios a un archivo comprimido, con una línea de encabezado y el mismo formato que usuarios.csv.
+     * @param destino El archivo de destino.
+     * @param codec El formato de compresión.
+     * @param nivel El nivel de compresión, de 0 (más rápido) a 9 (más compacto).
+     * @return El resultado de la exportación, incluyendo su rendimiento en MB/s.
+     * @throws IOException Si ocurre un error de E/S al escribir el archivo.
      */
+    public ResultadoTransferencia exportarUsuarios(Path destino, TransferenciaComprimida.Codec codec, int nivel) throws IOException {
+        Collection<Usuario> actuales = datos.getUsuarios();
+        Iterable<String> lineas = () -> Stream.concat(Stream.of("username,password,tipo"),
+                actuales.stream().map(u -> u.getUsername() + "," + u.getPassword() + "," + (u.isPremium() ? "premium" : "base")))
+                .iterator();
+        ResultadoTransferencia resultado = new TransferenciaComprimida(codec, nivel).exportar(destino, lineas);
+        ultimaExportacionMBs = resultado.mbPorSegundo();
+        System.out.println("Usuarios exportados a " + destino + ": " + resultado);
+        return resultado;
+    }
 
     /**
-     * Carga las reservas desde el archivo CSV.
+     * Exporta las reservas a un archivo comprimido, con una línea de encabezado y el formato que lee la carga de reservas.
+     * @param destino El archivo de destino.
+     * @param codec El formato de compresión.
+     * @param nivel El nivel de compresión, de 0 (más rápido) a 9 (más compacto).
+     * @return El resultado de la exportación, incluyendo su rendimiento en MB/s.
+     * @throws IOException Si ocurre un error de E/S al escribir el archivo.
      */
-    private void cargarReservas() {
-        Path path = Paths.get(archivoReservas);
-        if (Files.exists(path)) {
-            try (BufferedReader br = Files.newBufferedReader(path)) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    String[] datos = line.split(",");
-                    Reserva reserva = new Reserva(datos[1], Boolean.parseBoolean(datos[2]), Integer.parseInt(datos[3]), datos[4], datos[0]);
-                    reservas.add(reserva);
+    public ResultadoTransferencia exportarReservas(Path destino, TransferenciaComprimida.Codec codec, int nivel) throws IOException {
+        Instantanea actual = datos;
+        Collection<Reserva> actuales = actual.getAlmacen() != null ? actual.getAlmacen().todas() : actual.getReservas();
+        Iterable<String> lineas = () -> Stream.concat(Stream.of("fechaVuelo,tipoVuelo,cantidadBoletos,aerolinea,username"),
+                actuales.stream().map(Reserva::aLineaCsv))
+                .iterator();
+        ResultadoTransferencia resultado = new TransferenciaComprimida(codec, nivel).exportar(destino, lineas);
+        ultimaExportacionMBs = resultado.mbPorSegundo();
+        System.out.println("Reservas exportadas a " + destino + ": " + resultado);
+        return resultado;
+    }
+
+    /**
+     * Importa los usuarios desde un archivo comprimido generado por {@link #exportarUsuarios}, descomprimiéndolo
+     * en flujo directamente hacia la carga normal de usuarios. Los usuarios importados reemplazan a los actuales
+     * en memoria y en usuarios.csv, y si la instancia es primaria se envían a los seguidores.
+     * @param origen El archivo a importar.
+     * @param codec El formato de compresión del archivo.
+     * @return El resultado de la importación, incluyendo su rendimiento en MB/s.
+     * @throws IOException Si ocurre un error de E/S al leer el archivo.
+     * @throws IllegalStateException Si la instancia sigue a una primaria.
+     */
+    public synchronized ResultadoTransferencia importarUsuarios(Path origen, TransferenciaComprimida.Codec codec) throws IOException {
+        if (soloLectura) {
+            throw new IllegalStateException("Una instancia seguidora no puede importar usuarios.");
+        }
+        ResultadoTransferencia resultado = new TransferenciaComprimida(codec, Deflater.DEFAULT_COMPRESSION)
+                .importar(origen, br -> {
+                    publicarUsuarios(leerUsuarios(br));
+                    publicarEstado();
+                    guardarUsuarios();
+                });
+        ultimaImportacionMBs = resultado.mbPorSegundo();
+        System.out.println("Usuarios importados desde " + origen + ": " + resultado);
+        return resultado;
+    }
+
+    /**
+     * Importa las reservas desde un archivo comprimido generado por {@link #exportarReservas}, descomprimiéndolo
+     * en flujo directamente hacia la carga normal de reservas. Las reservas importadas reemplazan a las actuales
+     * en memoria y en reservas.csv o, en modo particionado, en los archivos de las particiones. Las consultas
+     * siguen viendo las reservas anteriores completas hasta que se publican las importadas. Si la instancia es
+     * primaria, las reservas importadas se envían a los seguidores.
+     * @param origen El archivo a importar.
+     * @param codec El formato de compresión del archivo.
+     * @return El resultado de la importación, incluyendo su rendimiento en MB/s.
+     * @throws IOException Si ocurre un error de E/S al leer el archivo.
+     * @throws IllegalStateException Si la instancia sigue a una primaria.
+     */
+    public synchronized ResultadoTransferencia importarReservas(Path origen, TransferenciaComprimida.Codec codec) throws IOException {
+        if (soloLectura) {
+            throw new IllegalStateException("Una instancia seguidora no puede importar reservas.");
+        }
+        ResultadoTransferencia resultado = new TransferenciaComprimida(codec, Deflater.DEFAULT_COMPRESSION)
+                .importar(origen, br -> {
+                    List<Reserva> importadas = leerReservas(br);
+                    AlmacenParticionado almacen = datos.getAlmacen();
+                    if (almacen != null) {
+                        // El almacén nuevo se arma aparte y reemplaza al actual de una sola vez; mientras tanto
+                        // ninguna reserva puede reescribir una partición con los datos anteriores
+                        reemplazoAlmacen.writeLock().lock();
+                        try {
+                            datos = datos.conAlmacen(almacen.conReservas(importadas));
+                            publicarEstado();
+                        } finally {
+                            reemplazoAlmacen.writeLock().unlock();
+                        }
+                    } else {
+                        publicarReservas(importadas);
+                        publicarEstado();
+                        escribirReservas();
+                    }
+                });
+        ultimaImportacionMBs = resultado.mbPorSegundo();
+        System.out.println("Reservas importadas desde " + origen + ": " + resultado);
+        return resultado;
+    }
+
+    /**
+     * Convierte esta instancia en primaria: a partir de ahora cada registro, cambio de contraseña o de tipo,
+     * reserva y cancelación se envía en orden a los seguidores conectados al puerto indicado que conozcan el
+     * secreto compartido. Cada seguidor recibe primero el estado completo, salvo que se reconecte durante esta
+     * misma ejecución y le falten pocas entradas; las importaciones y el archivado también envían el estado
+     * completo, porque los seguidores no pueden repetirlos.
+     * @param direccion La dirección local en la que se aceptan seguidores, o null para aceptar solo conexiones
+     *                  locales.
+     * @param puerto El puerto en el que se aceptan seguidores.
+     * @param secreto El secreto compartido con los seguidores.
+     * @throws IOException Si la dirección no es válida o no se puede abrir el puerto.
+     */
+    public void iniciarReplicacionPrimaria(String direccion, int puerto, String secreto) throws IOException {
+        ReplicadorPrimario nuevoReplicador = new ReplicadorPrimario(direccionLocal(direccion), puerto, secreto, 0,
+                                                                    this::capturarEstado);
+        nuevoReplicador.iniciar();
+        replicador = nuevoReplicador;
+    }
+
+    /**
+     * Convierte esta instancia en seguidora de solo lectura de una instancia primaria. Al conectarse recibe el
+     * estado completo del primario, que reemplaza a los datos cargados de los archivos, y luego cada cambio. Los
+     * cambios recibidos se aplican en memoria sin escribir los archivos CSV, y la instancia debe usar el modo de un
+     * solo archivo de reservas.
+     * @param host El host de la instancia primaria.
+     * @param puerto El puerto de replicación de la instancia primaria.
+     * @param secreto El secreto compartido con la instancia primaria.
+     * @throws IllegalStateException Si el almacenamiento particionado está activo.
+     */
+    public synchronized void seguirPrimario(String host, int puerto, String secreto) {
+        // Los cambios replicados se aplican sobre la cola de reservas, que no se usa con particiones
+        if (datos.getAlmacen() != null) {
+            throw new IllegalStateException("Una instancia con almacenamiento particionado no puede ser seguidora.");
+        }
+        soloLectura = true;
+        SeguidorReplicacion nuevoSeguidor = new SeguidorReplicacion(host, puerto, secreto, this::aplicarReplicacion);
+        nuevoSeguidor.iniciar();
+        seguidor = nuevoSeguidor;
+    }
+
+    /**
+     * Promueve esta instancia seguidora a primaria, por ejemplo cuando la primaria deja de responder.
+     * Deja de seguir al primario anterior, vuelve a aceptar cambios y, si se indica un puerto, empieza a
+     * replicar hacia nuevos seguidores continuando la secuencia ya aplicada. La promoción inicia una nueva época,
+     * de modo que los seguidores del primario anterior reciben el estado completo de esta instancia.
+     * @param direccion La dirección local en la que se aceptan seguidores, o null para aceptar solo conexiones
+     *                  locales.
+     * @param puertoReplicacion El puerto para aceptar seguidores, o 0 para no replicar.
+     * @param secreto El secreto compartido con los nuevos seguidores.
+     * @throws IOException Si la dirección no es válida o no se puede abrir el puerto.
+     */
+    public void promover(String direccion, int puertoReplicacion, String secreto) throws IOException {
+        SeguidorReplicacion anterior = seguidor;
+        long ultimaSecuencia = 0;
+        if (anterior != null) {
+            anterior.close();
+            ultimaSecuencia = Math.max(0, anterior.getUltimaSecuencia());
+            seguidor = null;
+        }
+        soloLectura = false;
+        if (puertoReplicacion > 0) {
+            ReplicadorPrimario nuevoReplicador = new ReplicadorPrimario(direccionLocal(direccion), puertoReplicacion,
+                                                                        secreto, ultimaSecuencia, this::capturarEstado);
+            nuevoReplicador.iniciar();
+            replicador = nuevoReplicador;
+        }
+        System.out.println("Instancia promovida a primaria.");
+    }
+
+    /**
+     * Activa el almacenamiento particionado de reservas. Las reservas actuales se reparten en archivos
+     * "reservas-0.csv" a "reservas-(cantidad-1).csv" según el criterio indicado y reservas.csv queda vacío.
+     * La cantidad de particiones y el criterio quedan guardados en "reservas-particiones.properties"; a partir
+     * de entonces cada ejecución abre las particiones al iniciar, y activarlas de nuevo con los mismos valores
+     * no hace nada.
+     * @param cantidad La cantidad de particiones.
+     * @param criterio El criterio para asignar las reservas a las particiones.
+     * @throws IOException Si ocurre un error de E/S al leer o escribir los archivos de las particiones, o si las
+     *                     particiones existentes se crearon con otra cantidad de particiones u otro criterio.
+     * @throws IllegalStateException Si la instancia sigue a una primaria.
+     */
+    public synchronized void activarParticionado(int cantidad, AlmacenParticionado.Criterio criterio) throws IOException {
+        if (soloLectura) {
+            throw new IllegalStateException("Una instancia seguidora no puede usar almacenamiento particionado.");
+        }
+        AlmacenParticionado actual = datos.getAlmacen();
+        if (actual != null) {
+            if (actual.getCantidad() != cantidad || actual.getCriterio() != criterio) {
+                throw new IOException("El almacenamiento particionado ya está activo con " + actual.getCantidad()
+                        + " particiones por " + actual.getCriterio() + ".");
+            }
+            return;
+        }
+        reemplazoAlmacen.writeLock().lock();
+        try {
+            AlmacenParticionado nuevoAlmacen = AlmacenParticionado.abrir("reservas", cantidad, criterio, datos.getReservas());
+            datos = datos.conAlmacen(nuevoAlmacen);
+        } finally {
+            reemplazoAlmacen.writeLock().unlock();
+        }
+        // Las reservas ya están en las particiones; reservas.csv vacío indica que no quedó ninguna fuera de ellas
+        escribirReservas();
+        System.out.println("Almacenamiento particionado activado con " + cantidad + " particiones.");
+    }
+
+    /**
+     * Vuelve a leer los usuarios, las reservas o ambos desde los archivos CSV o desde las particiones, según el
+     * modo activo, y los publica en una nueva instantánea. Los archivos se leen sin tomar el bloqueo de Kayak,
+     * que solo se toma para publicar. Si mientras tanto esta instancia escribió algún cambio, los datos leídos
+     * pueden no incluirlo y se vuelven a leer; tras varios intentos, la última lectura se hace con el bloqueo
+     * tomado para que una recarga nunca quede postergada indefinidamente.
+     * @param usuarios true para volver a leer los usuarios.
+     * @param reservas true para volver a leer las reservas.
+     * @throws IOException Si ocurre un error de E/S al leer los archivos.
+     */
+    private void recargar(boolean usuarios, boolean reservas) throws IOException {
+        for (int intento = 1; intento < INTENTOS_RECARGA; intento++) {
+            long escriturasAntes = escrituras.get();
+            Instantanea base = datos;
+            Instantanea leida = leerArchivos(base, usuarios, reservas);
+            synchronized (this) {
+                reemplazoAlmacen.writeLock().lock();
+                try {
+                    if (escrituras.get() == escriturasAntes && datos == base) {
+                        datos = leida;
+                        return;
+                    }
+                } finally {
+                    reemplazoAlmacen.writeLock().unlock();
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
         }
+        synchronized (this) {
+            reemplazoAlmacen.writeLock().lock();
+            try {
+                datos = leerArchivos(datos, usuarios, reservas);
+            } finally {
+                reemplazoAlmacen.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Arma una instantánea con los datos leídos de los archivos, sin publicarla.
+     * @param base La instantánea de la que se conservan los datos que no se leen.
+     * @param usuarios true para leer los usuarios.
+     * @param reservas true para leer las reservas.
+     * @return La nueva instantánea.
+     * @throws IOException Si ocurre un error de E/S al leer los archivos.
+     */
+    private Instantanea leerArchivos(Instantanea base, boolean usuarios, boolean reservas) throws IOException {
+        Instantanea leida = base;
+        if (usuarios) {
+            leida = leida.conUsuarios(cargarUsuarios(archivoUsuarios), tasaFiltroUsuarios);
+        }
+        if (reservas) {
+            AlmacenParticionado almacen = base.getAlmacen();
+            // Las particiones se cargan en un almacén nuevo que reemplaza al anterior de una sola vez
+            leida = almacen != null ? leida.conAlmacen(almacen.recargar()) : leida.conReservas(cargarReservas(archivoReservas));
+        }
+        return leida;
     }
 
+    /**
+     * Publica una nueva lista de usuarios junto con su filtro de nombres en una nueva instantánea.
+     * @param usuariosCargados La lista de usuarios completamente cargada.
+     */
+    private void publicarUsuarios(List<Usuario> usuariosCargados) {
+        datos = datos.conUsuarios(usuariosCargados, tasaFiltroUsuarios);
+    }
 
     /**
-     * Guarda las reservas en el archivo CSV.
+     * Cambia la tasa de falsos positivos del filtro de nombres de usuario y lo reconstruye.
+     * Se sincroniza con los registros para que ningún nombre nuevo quede fuera del filtro reconstruido.
+     * @param tasa La nueva tasa de falsos positivos, entre 0 y 1 (exclusivos).
      */
-    private void guardarReservas() {
-        try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(archivoReservas))) {
-            for (Reserva reserva : reservas) {
-                bw.write(reserva.getUsername() + "," + reserva.getFechaVuelo() + "," + reserva.isTipoVuelo() + "," +
-                        reserva.getCantidadBoletos() + "," + reserva.getAerolinea());
-                bw.newLine();
+    public synchronized void configurarFiltroUsuarios(double tasa) {
+        datos = datos.conFiltro(tasa);
+        tasaFiltroUsuarios = tasa;
+    }
+
+    /**
+     * Reemplaza los límites de solicitudes para inicio de sesión, registro y reservas.
+     * Los contadores de solicitudes admitidas y rechazadas vuelven a empezar desde cero.
+     * @param tasaGlobal Las solicitudes por segundo permitidas en total para cada operación.
+     * @param rafagaGlobal Las solicitudes seguidas permitidas en total para cada operación.
+     * @param tasaUsuario Las solicitudes por segundo permitidas a cada usuario para cada operación.
+     * @param rafagaUsuario Las solicitudes seguidas permitidas a cada usuario para cada operación.
+     */
+    public void configurarAdmision(double tasaGlobal, int rafagaGlobal, double tasaUsuario, int rafagaUsuario) {
+        admision = new ControlAdmision(tasaGlobal, rafagaGlobal, tasaUsuario, rafagaUsuario);
+    }
+
+    /**
+     * Devuelve las métricas de funcionamiento del sistema.
+     * @return Un mapa con el nombre de cada métrica y su valor actual.
+     */
+    public Map<String, Number> metricas() {
+        Map<String, Number> metricas = new LinkedHashMap<>();
+        FiltroBloom filtro = datos.getFiltroUsuarios();
+        metricas.put("filtroUsuarios.consultas", consultasFiltro.sum());
+        metricas.put("filtroUsuarios.descartes", descartesFiltro.sum());
+        metricas.put("filtroUsuarios.falsosPositivos", falsosPositivosFiltro.sum());
+        metricas.put("filtroUsuarios.tasaConfigurada", filtro.getTasaFalsosPositivos());
+        metricas.put("filtroUsuarios.tasaEstimada", filtro.tasaEstimada());
+        metricas.put("exportacion.ultimaMBs", ultimaExportacionMBs);
+        metricas.put("importacion.ultimaMBs", ultimaImportacionMBs);
+        ReplicadorPrimario primario = replicador;
+        if (primario != null) {
+            metricas.put("replicacion.secuencia", primario.getSecuencia());
+            metricas.put("replicacion.seguidores", primario.cantidadSeguidores());
+        }
+        SeguidorReplicacion actual = seguidor;
+        if (actual != null) {
+            metricas.put("replicacion.secuenciaAplicada", actual.getUltimaSecuencia());
+            metricas.put("replicacion.retrasoEntradas", actual.retrasoEntradas());
+            metricas.put("replicacion.retrasoMillis", actual.getRetrasoMillis());
+        }
+        ControlAdmision control = admision;
+        for (ControlAdmision.Operacion operacion : ControlAdmision.Operacion.values()) {
+            String nombre = operacion.name().toLowerCase();
+            metricas.put("admision." + nombre + ".admitidas", control.admitidas(operacion));
+            metricas.put("admision." + nombre + ".rechazadas", control.rechazadas(operacion));
+        }
+        return metricas;
+    }
+
+    /**
+     * Envía un cambio a los seguidores si esta instancia es primaria. Se llama con el bloqueo que ordena el cambio ya
+     * tomado, el de Kayak o el de la partición de la reserva, de modo que los cambios de un mismo usuario o de una
+     * misma reserva reciben secuencias en el mismo orden en que se aplicaron. No toma el bloqueo de Kayak, porque
+     * las reservas en particiones lo llaman con su partición bloqueada.
+     * @param tipo El tipo de cambio.
+     * @param campos Los datos del cambio.
+     */
+    private void publicarReplicacion(EntradaReplicacion.Tipo tipo, String... campos) {
+        ReplicadorPrimario actual = replicador;
+        if (actual != null) {
+            actual.publicar(tipo, campos);
+        }
+    }
+
+    /**
+     * Envía a los seguidores el estado completo, para los cambios que no se replican entrada por entrada, como las
+     * importaciones y el archivado. Se llama con el bloqueo de Kayak tomado; el de escritura del almacén se toma
+     * aquí para que ninguna reserva en una partición cambie mientras se copia.
+     */
+    private void publicarEstado() {
+        if (replicador == null) {
+            return;
+        }
+        reemplazoAlmacen.writeLock().lock();
+        try {
+            publicarReplicacion(EntradaReplicacion.Tipo.INSTANTANEA, camposEstado());
+        } finally {
+            reemplazoAlmacen.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Entrega el estado completo a un seguidor que se conecta, con todos los cambios detenidos para que el estado
+     * corresponda exactamente a la última secuencia publicada.
+     * @param destino La operación que recibe los campos de la instantánea.
+     */
+    private void capturarEstado(Consumer<String[]> destino) {
+        synchronized (this) {
+            reemplazoAlmacen.writeLock().lock();
+            try {
+                destino.accept(camposEstado());
+            } finally {
+                reemplazoAlmacen.writeLock().unlock();
             }
+        }
+    }
+
+    /**
+     * Arma los campos de una entrada INSTANTANEA: la cantidad de usuarios, luego nombre, contraseña y tipo de cada
+     * uno, y luego una línea CSV por reserva. Debe llamarse con los cambios detenidos.
+     * @return Los campos de la instantánea.
+     */
+    private String[] camposEstado() {
+        Instantanea actual = datos;
+        List<Usuario> usuarios = new ArrayList<>(actual.getUsuarios());
+        Collection<Reserva> reservas = actual.getAlmacen() != null ? actual.getAlmacen().todas() : actual.getReservas();
+        List<String> campos = new ArrayList<>(1 + 3 * usuarios.size() + reservas.size());
+        campos.add(String.valueOf(usuarios.size()));
+        for (Usuario usuario : usuarios) {
+            campos.add(usuario.getUsername());
+            campos.add(usuario.getPassword());
+            campos.add(usuario.isPremium() ? "premium" : "base");
+        }
+        for (Reserva reserva : reservas) {
+            campos.add(reserva.aLineaCsv());
+        }
+        return campos.toArray(new String[0]);
+    }
+
+    /**
+     * Obtiene la dirección local para aceptar seguidores.
+     * @param direccion El nombre o la dirección IP, o null para la dirección de loopback.
+     * @return La dirección local.
+     * @throws IOException Si la dirección no es válida.
+     */
+    private static InetAddress direccionLocal(String direccion) throws IOException {
+        return direccion == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(direccion);
+    }
+
+    /**
+     * Aplica en memoria un cambio recibido de la instancia primaria.
+     * @param entrada El cambio a aplicar.
+     */
+    private synchronized void aplicarReplicacion(EntradaReplicacion entrada) {
+        Instantanea actual = datos;
+        switch (entrada.getTipo()) {
+            case REGISTRO:
+                actual.getFiltroUsuarios().agregar(entrada.getCampo(0));
+                actual.getUsuarios().add(new Usuario(entrada.getCampo(0), entrada.getCampo(1), "premium".equals(entrada.getCampo(2))));
+                break;
+            case PASSWORD:
+                actual.getUsuarios().stream()
+                        .filter(u -> u.getUsername().equals(entrada.getCampo(0)))
+                        .findFirst()
+                        .ifPresent(u -> u.setPassword(entrada.getCampo(1)));
+                break;
+            case TIPO_USUARIO:
+                actual.getUsuarios().stream()
+                        .filter(u -> u.getUsername().equals(entrada.getCampo(0)))
+                        .findFirst()
+                        .ifPresent(u -> u.setPremium("premium".equals(entrada.getCampo(1))));
+                break;
+            case RESERVA:
+                Reserva reserva = Reserva.desdeLineaCsv(entrada.getCampo(0));
+                if (reserva != null) {
+                    actual.getReservas().add(reserva);
+                    actual.getContadores().registrar(reserva);
+                }
+                break;
+            case CANCELACION:
+                Reserva cancelada = Reserva.desdeLineaCsv(entrada.getCampo(0));
+                if (cancelada == null) {
+                    break;
+                }
+                actual.getReservas().stream()
+                        .filter(cancelada::mismosDatos)
+                        .findFirst()
+                        .ifPresent(r -> {
+                            actual.getReservas().remove(r);
+                            actual.getContadores().cancelar(r);
+                        });
+                break;
+            case INSTANTANEA:
+                int cantidadUsuarios = Integer.parseInt(entrada.getCampo(0));
+                List<Usuario> usuarios = new ArrayList<>(cantidadUsuarios);
+                for (int i = 0; i < cantidadUsuarios; i++) {
+                    usuarios.add(new Usuario(entrada.getCampo(1 + 3 * i), entrada.getCampo(2 + 3 * i),
+                                             "premium".equals(entrada.getCampo(3 + 3 * i))));
+                }
+                List<Reserva> reservas = new ArrayList<>();
+                for (int i = 1 + 3 * cantidadUsuarios; i < entrada.cantidadCampos(); i++) {
+                    Reserva recibida = Reserva.desdeLineaCsv(entrada.getCampo(i));
+                    if (recibida != null) {
+                        reservas.add(recibida);
+                    }
+                }
+                datos = actual.conUsuarios(usuarios, tasaFiltroUsuarios).conReservas(reservas);
+                System.out.println("Estado de la instancia primaria recibido: " + usuarios.size() + " usuarios y "
+                        + reservas.size() + " reservas.");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Indica si la instancia es de solo lectura y, en ese caso, avisa que el cambio se rechaza.
+     * @return true si el cambio debe rechazarse, false en caso contrario.
+     */
+    private boolean rechazarEnSoloLectura() {
+        if (soloLectura) {
+            System.out.println("Esta instancia es de solo lectura; los cambios deben hacerse en la instancia primaria.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indica si la versión actual de un archivo es la última que escribió esta instancia.
+     * @param archivo El nombre del archivo.
+     * @return true si nadie más modificó el archivo desde la última escritura propia, false en caso contrario.
+     */
+    private boolean esEscrituraPropia(String archivo) {
+        FileTime propia = escriturasPropias.get(archivo);
+        try {
+            return propia != null && propia.equals(Files.getLastModifiedTime(Paths.get(archivo)));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reemplaza de forma atómica un archivo de datos y recuerda su versión para que la vigilancia de archivos
+     * no la confunda con un cambio externo.
+     * @param archivo El nombre del archivo.
+     * @param lineas Las líneas del contenido nuevo.
+     * @throws IOException Si ocurre un error de E/S al escribir el archivo.
+     */
+    private void escribirArchivoPropio(String archivo, Iterable<String> lineas) throws IOException {
+        Path path = Paths.get(archivo);
+        EscrituraAtomica.escribirLineas(path, lineas);
+        escriturasPropias.put(archivo, Files.getLastModifiedTime(path));
+        // Se cuenta después de escribir: una recarga que empiece después ya lee el archivo nuevo
+        escrituras.incrementAndGet();
+    }
+
+    /**
+     * Publica una nueva lista de reservas junto con sus contadores ya reconstruidos en una nueva instantánea.
+     * @param reservasCargadas La lista de reservas completamente cargada.
+     */
+    private void publicarReservas(List<Reserva> reservasCargadas) {
+        datos = datos.conReservas(reservasCargadas);
+    }
+
+    /**
+     * Guarda las reservas en el archivo CSV, con una línea de encabezado y el formato que lee la carga de reservas.
+     * El archivo se reemplaza de forma atómica.
+     */
+    private void guardarReservas() {
+        try {
+            escribirReservas();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reemplaza de forma atómica el archivo CSV de reservas con las reservas actuales.
+     * @throws IOException Si ocurre un error de E/S al escribir el archivo.
+     */
+    private void escribirReservas() throws IOException {
+        Collection<Reserva> actuales = datos.getReservas();
+        escribirArchivoPropio(archivoReservas, () -> Stream.concat(Stream.of("fechaVuelo,tipoVuelo,cantidadBoletos,aerolinea,username"),
+                actuales.stream().map(Reserva::aLineaCsv))
+                .iterator());
+    }
+
 
     /**
      * Carga los usuarios desde un archivo CSV.
@@ -334,34 +1287,45 @@ public class Kayak implements IReserva {
      * @throws IOException Si hay un error de entrada/salida al leer el archivo.
      */
     private List<Usuario> cargarUsuarios(String archivo) throws IOException {
-        List<Usuario> usuariosCargados = new ArrayList<>();
         Path path = Paths.get(archivo);
 
         // Verifica si el archivo existe antes de intentar leerlo
         if (Files.exists(path)) {
             try (BufferedReader br = Files.newBufferedReader(path)) {
-                String linea;
+                return leerUsuarios(br);
+            }
+        } else {
+            throw new FileNotFoundException("El archivo " + archivo + " no se encontró.");
+        }
+    }
+
+    /**
+     * Lee los usuarios en formato CSV desde un lector, omitiendo la línea del encabezado.
+     * @param br El lector del que se leen las líneas.
+     * @return Una lista de usuarios.
+     * @throws IOException Si hay un error de entrada/salida al leer.
+     */
+    private List<Usuario> leerUsuarios(BufferedReader br) throws IOException {
+        List<Usuario> usuariosCargados = new ArrayList<>();
+        String linea;
 
-                // Omitir la línea del encabezado 
-                br.readLine();
+        // Omitir la línea del encabezado 
+        br.readLine();
 
-                // Leer el archivo línea por línea
-                while ((linea = br.readLine()) != null) {
-                    String[] datosUsuario = linea.split(",");
+        // Leer el archivo línea por línea
+        while ((linea = br.readLine()) != null) {
+            String[] datosUsuario = linea.split(",");
 
-                    // Asegurarse de que la línea tenga la cantidad correcta de campos
-                    if (datosUsuario.length == 2) {
-                        String username = datosUsuario[0];
-                        String password = datosUsuario[1];
+            // Asegurarse de que la línea tenga la cantidad correcta de campos; el tipo es opcional
+            if (datosUsuario.length >= 2) {
+                String username = datosUsuario[0];
+                String password = datosUsuario[1];
+                boolean esPremium = datosUsuario.length >= 3 && datosUsuario[2].equalsIgnoreCase("premium");
 
-                        // Crear un nuevo objeto de usuario y añadirlo a la lista
-                        Usuario usuario = new Usuario(username, password);
-                        usuariosCargados.add(usuario);
-                    }
-                }
+                // Crear un nuevo objeto de usuario y añadirlo a la lista
+                Usuario usuario = new Usuario(username, password, esPremium);
+                usuariosCargados.add(usuario);
             }
-        } else {
-            throw new FileNotFoundException("El archivo " + archivo + " no se encontró.");
         }
 
         return usuariosCargados;
@@ -374,39 +1338,49 @@ public class Kayak implements IReserva {
      * @throws IOException Si hay un error de entrada/salida al leer el archivo.
      */
     private List<Reserva> cargarReservas(String archivo) throws IOException {
-        List<Reserva> reservasCargadas = new ArrayList<>();
         Path path = Paths.get(archivo);
 
         // Verifica si el archivo existe antes de intentar leerlo
         if (Files.exists(path)) {
             try (BufferedReader br = Files.newBufferedReader(path)) {
-                String linea;
-
-                // Omitir la línea del encabezado si existe
-                br.readLine();
-
-                // Leer el archivo línea por línea
-                while ((linea = br.readLine()) != null) {
-                    String[] datosReserva = linea.split(",");
-
-                    // Asegurarse de que la línea tenga la cantidad correcta de campos
-                    if (datosReserva.length >= 5) { // Ajustar según la cantidad de campos en tu archivo CSV
-                        String fechaVuelo = datosReserva[0];
-                        boolean tipoVuelo = Boolean.parseBoolean(datosReserva[1]);
-                        int cantidadBoletos = Integer.parseInt(datosReserva[2]);
-                        String aerolinea = datosReserva[3];
-                        String username = datosReserva[4];
-                        // Asumir que hay más campos si es necesario y convertirlos adecuadamente
-
-                        // Crear un nuevo objeto de reserva y añadirlo a la lista
-                        Reserva reserva = new Reserva(fechaVuelo, tipoVuelo, cantidadBoletos, aerolinea, username);
-                        reservasCargadas.add(reserva);
-                    }
-                }
+                return leerReservas(br);
             }
         } else {
             throw new FileNotFoundException("El archivo " + archivo + " no se encontró.");
         }
+    }
+
+    /**
+     * Lee las reservas en formato CSV desde un lector, omitiendo la línea del encabezado.
+     * @param br El lector del que se leen las líneas.
+     * @return Una lista de reservas.
+     * @throws IOException Si hay un error de entrada/salida al leer.
+     */
+    private List<Reserva> leerReservas(BufferedReader br) throws IOException {
+        List<Reserva> reservasCargadas = new ArrayList<>();
+        String linea;
+
+        // Omitir la línea del encabezado si existe
+        br.readLine();
+
+        // Leer el archivo línea por línea
+        while ((linea = br.readLine()) != null) {
+            String[] datosReserva = linea.split(",");
+
+            // Asegurarse de que la línea tenga la cantidad correcta de campos
+            if (datosReserva.length >= 5) { // Ajustar según la cantidad de campos en tu archivo CSV
+                String fechaVuelo = datosReserva[0];
+                boolean tipoVuelo = Boolean.parseBoolean(datosReserva[1]);
+                int cantidadBoletos = Integer.parseInt(datosReserva[2]);
+                String aerolinea = datosReserva[3];
+                String username = datosReserva[4];
+                // Asumir que hay más campos si es necesario y convertirlos adecuadamente
+
+                // Crear un nuevo objeto de reserva y añadirlo a la lista
+                Reserva reserva = new Reserva(fechaVuelo, tipoVuelo, cantidadBoletos, aerolinea, username);
+                reservasCargadas.add(reserva);
+            }
+        }
 
         return reservasCargadas;
     }
@@ -414,9 +1388,15 @@ public class Kayak implements IReserva {
     private String generarItinerario(Usuario usuario) {
         // Genera un resumen del itinerario basado en las reservas del usuario
         StringBuilder itinerario = new StringBuilder("Itinerario para " + usuario.getUsername() + ":\n");
-        reservas.stream()
+        Instantanea actual = datos;
+        Collection<Reserva> fuente = actual.getAlmacen() != null ? actual.getAlmacen().buscarPorUsuario(usuario.getUsername())
+                                                                 : actual.getReservas();
+        fuente.stream()
                 .filter(reserva -> reserva.getUsername().equals(usuario.getUsername()))
-                .forEach(reserva -> itinerario.append(reserva.toString()).append("\n"));
+                .forEach(reserva -> {
+                    FormateadorReserva.escribir(reserva, itinerario);
+                    itinerario.append("\n");
+                });
         return itinerario.toString();
     }
 
@@ -0,0 +1,72 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Programa para probar la replicación con dos JVM. Cada nodo carga usuarios.csv y reservas.csv de su directorio
+ * de trabajo y luego atiende comandos por la entrada estándar; el seguidor reemplaza esos datos por el estado que
+ * recibe del primario al conectarse. El secreto compartido se toma de la variable de
+ * entorno KAYAK_SECRETO_REPLICACION para que no aparezca en la línea de comandos.
+ * Uso: java NodoReplicacion primario [puerto] [direccion] | java NodoReplicacion seguidor [host] [puerto]
+ * Sin dirección, el primario solo acepta seguidores de la misma máquina.
+ * Comandos: registrar usuario,password,tipo | reservar fechaVuelo,tipoVuelo,boletos,aerolinea,usuario |
+ * cancelar fechaVuelo,tipoVuelo,boletos,aerolinea,usuario |
+ * login usuario password | itinerario | metricas | promover [puerto] [direccion] | salir
+ */
+public class NodoReplicacion {
+
+    public static void main(String[] args) throws IOException {
+        String secreto = System.getenv("KAYAK_SECRETO_REPLICACION");
+        if (secreto == null || secreto.isEmpty()) {
+            System.out.println("Defina la variable de entorno KAYAK_SECRETO_REPLICACION con el secreto compartido.");
+            return;
+        }
+        Kayak kayak = new Kayak();
+        if (args.length > 0 && args[0].equals("seguidor")) {
+            kayak.seguirPrimario(args.length > 1 ? args[1] : "localhost", args.length > 2 ? Integer.parseInt(args[2]) : 5000,
+                                 secreto);
+        } else {
+            kayak.iniciarReplicacionPrimaria(args.length > 2 ? args[2] : null,
+                                             args.length > 1 ? Integer.parseInt(args[1]) : 5000, secreto);
+        }
+
+        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+        String linea;
+        while ((linea = br.readLine()) != null && !linea.trim().equals("salir")) {
+            String[] partes = linea.trim().split(" ", 2);
+            String argumentos = partes.length > 1 ? partes[1] : "";
+            switch (partes[0]) {
+                case "registrar":
+                    String[] usuario = argumentos.split(",");
+                    kayak.registroUsuario(usuario[0], usuario[1], usuario[2]);
+                    break;
+                case "reservar":
+                    String[] datos = argumentos.split(",");
+                    kayak.reservacion(datos[0], Boolean.parseBoolean(datos[1]), Integer.parseInt(datos[2]), datos[3], datos[4]);
+                    break;
+                case "cancelar":
+                    String[] cancelada = argumentos.split(",");
+                    kayak.cancelarReservacion(cancelada[0], Boolean.parseBoolean(cancelada[1]), Integer.parseInt(cancelada[2]),
+                                              cancelada[3], cancelada[4]);
+                    break;
+                case "login":
+                    String[] credenciales = argumentos.split(" ");
+                    kayak.login(credenciales[0], credenciales[1]);
+                    break;
+                case "itinerario":
+                    System.out.println(kayak.itinerario());
+                    break;
+                case "metricas":
+                    kayak.metricas().forEach((nombre, valor) -> System.out.println(nombre + " = " + valor));
+                    break;
+                case "promover":
+                    String[] destino = argumentos.isEmpty() ? new String[0] : argumentos.split(" ");
+                    kayak.promover(destino.length > 1 ? destino[1] : null,
+                                   destino.length > 0 ? Integer.parseInt(destino[0]) : 0, secreto);
+                    break;
+                default:
+                    System.out.println("Comando no reconocido: " + partes[0]);
+            }
+        }
+    }
+}
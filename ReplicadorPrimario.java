@@ -0,0 +1,338 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Clase que envía en orden los cambios de la instancia primaria a los seguidores conectados por socket.
+ * Solo acepta conexiones en la dirección configurada, por defecto la de loopback, y cada seguidor debe probar que
+ * conoce el secreto compartido antes de recibir datos: el primario envía un desafío aleatorio y el seguidor
+ * responde con su firma HMAC-SHA256.
+ * Publicar un cambio no bloquea: la entrada se agrega a la cola acotada de cada seguidor, que tiene su propio hilo
+ * de envío, y un seguidor cuya cola se llena se desconecta. Las entradas más recientes se conservan para poner al
+ * día a los seguidores que se reconectan. Un seguidor nuevo, uno de otra época del primario o uno demasiado
+ * atrasado recibe primero una instantánea con todo el estado y luego los cambios posteriores.
+ */
+public class ReplicadorPrimario implements Closeable {
+
+    private static final int ENTRADAS_RETENIDAS = 100_000; // Entradas guardadas para reenviar a seguidores atrasados
+    private static final int ENTRADAS_POR_SEGUIDOR = 10_000; // Entradas en espera por seguidor antes de desconectarlo
+    private static final long INTERVALO_LATIDO_MS = 1000; // Tiempo sin cambios tras el cual se envía un latido
+    private static final int ESPERA_SALUDO_MS = 5000; // Tiempo máximo para que un seguidor responda el desafío
+    private static final int LONGITUD_DESAFIO = 32;
+    private static final String ALGORITMO_FIRMA = "HmacSHA256";
+
+    /**
+     * Origen del estado completo del primario, para los seguidores que no pueden ponerse al día con las entradas
+     * retenidas.
+     */
+    public interface FuenteEstado {
+        /**
+         * Detiene los cambios, entrega al destino los campos de una entrada INSTANTANEA con el estado actual y
+         * recién después permite que los cambios continúen.
+         * @param destino La operación que recibe los campos mientras los cambios están detenidos.
+         */
+        void capturar(Consumer<String[]> destino);
+    }
+
+    private final ServerSocket servidor;
+    private final byte[] secreto;
+    private final FuenteEstado fuente;
+    private final SecureRandom aleatorio = new SecureRandom();
+    private final long epoca; // Distinta en cada ejecución, para que las secuencias de otra no se confundan
+    private final List<Conexion> seguidores = new CopyOnWriteArrayList<>();
+    private final Deque<EntradaReplicacion> retenidas = new ArrayDeque<>(); // Protegida por el monitor de this
+    private volatile long secuencia; // Última secuencia asignada; solo cambia con el monitor de this
+    private volatile boolean activo = true;
+
+    /**
+     * Constructor para la clase ReplicadorPrimario.
+     * @param direccion La dirección local en la que se aceptan seguidores, o null para usar la de loopback.
+     * @param puerto El puerto en el que se aceptan seguidores.
+     * @param secreto El secreto compartido que los seguidores deben conocer.
+     * @param secuenciaInicial La última secuencia ya aplicada, por ejemplo la de un seguidor promovido.
+     * @param fuente El origen del estado completo que se envía a los seguidores que no pueden ponerse al día.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public ReplicadorPrimario(InetAddress direccion, int puerto, String secreto, long secuenciaInicial,
+                              FuenteEstado fuente) throws IOException {
+        if (secreto == null || secreto.isEmpty()) {
+            throw new IllegalArgumentException("La replicación requiere un secreto compartido.");
+        }
+        this.secreto = secreto.getBytes(StandardCharsets.UTF_8);
+        this.fuente = fuente;
+        long elegida;
+        do {
+            elegida = aleatorio.nextLong();
+        } while (elegida == 0); // 0 es la época de un seguidor que todavía no recibió ningún estado
+        this.epoca = elegida;
+        this.servidor = new ServerSocket(puerto, 50, direccion != null ? direccion : InetAddress.getLoopbackAddress());
+        this.secuencia = secuenciaInicial;
+    }
+
+    /**
+     * Inicia el hilo que acepta seguidores.
+     */
+    public void iniciar() {
+        iniciarHilo(this::aceptar, "replicacion-aceptar");
+        System.out.println("Replicación primaria escuchando en " + servidor.getLocalSocketAddress());
+    }
+
+    /**
+     * Asigna la siguiente secuencia a un cambio y lo encola para cada seguidor. Quien publica debe hacerlo bajo
+     * el mismo bloqueo con el que aplica los cambios, para que el orden de las secuencias sea el de los cambios.
+     * @param tipo El tipo de cambio.
+     * @param campos Los datos del cambio.
+     */
+    public synchronized void publicar(EntradaReplicacion.Tipo tipo, String... campos) {
+        long siguiente = secuencia + 1;
+        EntradaReplicacion entrada = new EntradaReplicacion(epoca, siguiente, siguiente, System.currentTimeMillis(), tipo,
+                                                            campos);
+        secuencia = siguiente;
+        retenidas.addLast(entrada);
+        if (retenidas.size() > ENTRADAS_RETENIDAS) {
+            retenidas.removeFirst();
+        }
+        for (Conexion conexion : seguidores) {
+            if (!conexion.pendientes.offer(entrada)) {
+                // Un seguidor lento no puede frenar al primario; al reconectarse se pone al día con las retenidas
+                System.out.println("El seguidor " + conexion.socket.getRemoteSocketAddress()
+                        + " no recibe los cambios a tiempo; se desconecta.");
+                conexion.cerrar();
+            }
+        }
+    }
+
+    /**
+     * Obtiene la última secuencia asignada.
+     * @return La última secuencia.
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Obtiene la época de esta ejecución del primario.
+     * @return La época.
+     */
+    public long getEpoca() {
+        return epoca;
+    }
+
+    /**
+     * Obtiene la cantidad de seguidores conectados.
+     * @return La cantidad de seguidores.
+     */
+    public int cantidadSeguidores() {
+        return seguidores.size();
+    }
+
+    /**
+     * Deja de aceptar seguidores y cierra todas las conexiones.
+     * @throws IOException Si ocurre un error al cerrar el puerto.
+     */
+    @Override
+    public void close() throws IOException {
+        activo = false;
+        servidor.close();
+        for (Conexion conexion : seguidores) {
+            conexion.cerrar();
+        }
+    }
+
+    /**
+     * Calcula la firma con la que un seguidor responde el desafío del primario.
+     * @param secreto El secreto compartido.
+     * @param desafio El desafío recibido.
+     * @return La firma HMAC-SHA256 del desafío.
+     */
+    static byte[] firmar(byte[] secreto, byte[] desafio) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO_FIRMA);
+            mac.init(new SecretKeySpec(secreto, ALGORITMO_FIRMA));
+            return mac.doFinal(desafio);
+        } catch (GeneralSecurityException e) {
+            // Toda JVM incluye HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void aceptar() {
+        while (activo) {
+            Socket socket;
+            try {
+                socket = servidor.accept();
+            } catch (IOException e) {
+                if (activo) {
+                    System.out.println("Error al aceptar un seguidor: " + e.getMessage());
+                }
+                continue;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                long[] posicion = saludar(socket);
+                if (posicion == null) {
+                    System.out.println("Conexión rechazada de " + socket.getRemoteSocketAddress()
+                            + ": no conoce el secreto de replicación.");
+                    socket.close();
+                } else {
+                    Conexion conexion = new Conexion(socket);
+                    if (!registrar(conexion, posicion[0], posicion[1])) {
+                        // Se captura sin el monitor del replicador, porque los cambios se publican con el
+                        // bloqueo de Kayak tomado y la captura toma ese mismo bloqueo
+                        fuente.capturar(campos -> registrarConInstantanea(conexion, campos));
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Error en el saludo con " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+                try {
+                    socket.close();
+                } catch (IOException ignorada) {
+                    // La conexión ya no se usa
+                }
+            }
+        }
+    }
+
+    // Envía un desafío y verifica la firma del seguidor, con un tiempo máximo para que un cliente que no responde
+    // no detenga la aceptación. Devuelve la época y la última secuencia que el seguidor ya aplicó, o null si la
+    // firma no es válida.
+    private long[] saludar(Socket socket) throws IOException {
+        socket.setSoTimeout(ESPERA_SALUDO_MS);
+        byte[] desafio = new byte[LONGITUD_DESAFIO];
+        aleatorio.nextBytes(desafio);
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.write(desafio);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        byte[] esperada = firmar(secreto, desafio);
+        byte[] recibida = new byte[esperada.length];
+        in.readFully(recibida);
+        long epocaSeguidor = in.readLong();
+        long ultimaSecuencia = in.readLong();
+        socket.setSoTimeout(0);
+        return MessageDigest.isEqual(esperada, recibida) ? new long[] {epocaSeguidor, ultimaSecuencia} : null;
+    }
+
+    // Si el seguidor viene de esta misma época y las entradas retenidas cubren lo que le falta, las prepara y lo
+    // agrega a la lista de envío en un solo paso, de modo que no pierde ni repite ninguna entrada publicada mientras
+    // tanto. Devuelve false si el seguidor necesita una instantánea: es nuevo, siguió a otra ejecución del primario,
+    // o está demasiado atrasado.
+    private synchronized boolean registrar(Conexion conexion, long epocaSeguidor, long ultimaSecuencia) {
+        EntradaReplicacion primera = retenidas.peekFirst();
+        long primeraDisponible = primera != null ? primera.getSecuencia() : secuencia + 1;
+        if (epocaSeguidor != epoca || ultimaSecuencia < 0 || ultimaSecuencia > secuencia
+                || primeraDisponible > ultimaSecuencia + 1) {
+            return false;
+        }
+        for (EntradaReplicacion entrada : retenidas) {
+            if (entrada.getSecuencia() > ultimaSecuencia) {
+                conexion.atrasadas.add(entrada);
+            }
+        }
+        conexion.ultimaEnviada = ultimaSecuencia;
+        agregar(conexion);
+        return true;
+    }
+
+    // Agrega un seguidor que recibe primero el estado completo en la secuencia actual. Se llama mientras la fuente
+    // tiene los cambios detenidos, de modo que ninguna entrada posterior a la instantánea queda afuera.
+    private synchronized void registrarConInstantanea(Conexion conexion, String[] campos) {
+        conexion.atrasadas.add(new EntradaReplicacion(epoca, secuencia, secuencia, System.currentTimeMillis(),
+                                                      EntradaReplicacion.Tipo.INSTANTANEA, campos));
+        conexion.ultimaEnviada = secuencia;
+        agregar(conexion);
+        System.out.println("Estado completo enviado al seguidor " + conexion.socket.getRemoteSocketAddress()
+                + " en la secuencia " + secuencia);
+    }
+
+    private void agregar(Conexion conexion) {
+        seguidores.add(conexion);
+        iniciarHilo(conexion::enviar, "replicacion-enviar-" + conexion.socket.getRemoteSocketAddress());
+        System.out.println("Seguidor conectado: " + conexion.socket.getRemoteSocketAddress());
+    }
+
+    private static void iniciarHilo(Runnable tarea, String nombre) {
+        Thread hilo = new Thread(tarea, nombre);
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Conexión con un seguidor, con su cola acotada de entradas y su hilo de envío.
+     */
+    private class Conexion {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final BlockingQueue<EntradaReplicacion> pendientes = new ArrayBlockingQueue<>(ENTRADAS_POR_SEGUIDOR);
+        private final List<EntradaReplicacion> atrasadas = new ArrayList<>(); // Retenidas que faltaban al conectarse
+        private long ultimaEnviada; // Secuencia de la última entrada enviada; solo la usa el hilo de envío
+
+        Conexion(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void enviar() {
+            try {
+                for (EntradaReplicacion entrada : atrasadas) {
+                    entrada.escribir(out, secuencia);
+                    ultimaEnviada = entrada.getSecuencia();
+                }
+                atrasadas.clear();
+                out.flush();
+                while (activo && !socket.isClosed()) {
+                    EntradaReplicacion entrada = pendientes.poll(INTERVALO_LATIDO_MS, TimeUnit.MILLISECONDS);
+                    if (entrada == null) {
+                        // El latido lleva la secuencia de lo ya enviado; lo que siga en cola llegará después
+                        entrada = new EntradaReplicacion(epoca, ultimaEnviada, secuencia, System.currentTimeMillis(),
+                                                         EntradaReplicacion.Tipo.LATIDO);
+                    } else {
+                        ultimaEnviada = entrada.getSecuencia();
+                    }
+                    entrada.escribir(out, secuencia);
+                    // Las entradas que ya esperan en la cola se envían en el mismo bloque
+                    if (pendientes.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Seguidor desconectado: " + socket.getRemoteSocketAddress());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                cerrar();
+            }
+        }
+
+        void cerrar() {
+            seguidores.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // La conexión ya no se usa
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Objects;
 
 /**
  * Clase que representa una reserva en el sistema de reservas de vuelos.
@@ -213,26 +214,49 @@ public class Reserva {
     }
 
     /**
-     * Convierte la fecha de vuelo en formato String a un objeto Date.
+     * Método para cancelar una reserva.
+     * Este método debería actualizar el estado de la reserva a cancelada y gestionar la lógica necesaria.
+     */
+    public void cancelarReserva() {
+        // Lógica para cancelar la reserva.
+    }
+
+    /**
+     * Convierte la reserva en una línea CSV con el formato "fechaVuelo,tipoVuelo,cantidadBoletos,aerolinea,username".
      *
-     * @return Objeto Date que representa la fecha y hora del vuelo.
+     * @return La línea CSV que representa la reserva.
      */
-    private Date parseFechaVuelo() {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-            return sdf.parse(fechaVuelo);
-        } catch (ParseException e) {
-            e.printStackTrace();
-            return null; 
-        }
+    public String aLineaCsv() {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+        return (fechaVuelo != null ? sdf.format(fechaVuelo) : "") + "," + tipoVuelo + "," + cantidadBoletos + ","
+                + aerolinea + "," + username;
     }
 
     /**
-     * Método para cancelar una reserva.
-     * Este método debería actualizar el estado de la reserva a cancelada y gestionar la lógica necesaria.
+     * Indica si otra reserva tiene los mismos datos de vuelo, es decir, la misma fecha, tipo de vuelo, cantidad
+     * de boletos, aerolínea y usuario. Compara los campos directamente, sin formatear ninguna fecha.
+     *
+     * @param otra La reserva a comparar.
+     * @return true si ambas reservas tienen los mismos datos de vuelo, false en caso contrario.
      */
-    public void cancelarReserva() {
-        // Lógica para cancelar la reserva.
+    public boolean mismosDatos(Reserva otra) {
+        return tipoVuelo == otra.tipoVuelo && cantidadBoletos == otra.cantidadBoletos
+                && Objects.equals(username, otra.username) && Objects.equals(aerolinea, otra.aerolinea)
+                && Objects.equals(fechaVuelo, otra.fechaVuelo);
+    }
+
+    /**
+     * Crea una reserva a partir de una línea CSV generada por {@link #aLineaCsv()}.
+     *
+     * @param linea La línea CSV a convertir.
+     * @return La reserva correspondiente, o null si la línea no tiene la cantidad correcta de campos.
+     */
+    public static Reserva desdeLineaCsv(String linea) {
+        String[] datos = linea.split(",");
+        if (datos.length < 5) {
+            return null;
+        }
+        return new Reserva(datos[0], Boolean.parseBoolean(datos[1]), Integer.parseInt(datos[2]), datos[3], datos[4]);
     }
 
     private Date parseFecha(String fecha) {
@@ -247,9 +271,7 @@ public class Reserva {
 
     @Override
     public String toString() {
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-        return String.format("Reserva{fechaVuelo='%s', tipoVuelo=%b, cantidadBoletos=%d, aerolinea='%s', username='%s', numeroTarjeta='%s', cuotas=%d, claseVuelo='%s', numeroAsiento='%s', cantidadMaletas=%d}", 
-                             sdf.format(fechaVuelo), tipoVuelo, cantidadBoletos, aerolinea, username, numeroTarjeta, cuotas, claseVuelo, numeroAsiento, cantidadMaletas);
+        return FormateadorReserva.formatear(this);
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+/**
+ * Clase que representa el resultado de una exportación o importación comprimida.
+ */
+public class ResultadoTransferencia {
+    private final long bytesOriginales; // Bytes sin comprimir
+    private final long bytesComprimidos; // Bytes en el archivo comprimido
+    private final long nanos; // Duración de la transferencia
+
+    /**
+     * Constructor para la clase ResultadoTransferencia.
+     *
+     * @param bytesOriginales La cantidad de bytes sin comprimir.
+     * @param bytesComprimidos La cantidad de bytes comprimidos.
+     * @param nanos La duración de la transferencia en nanosegundos.
+     */
+    public ResultadoTransferencia(long bytesOriginales, long bytesComprimidos, long nanos) {
+        this.bytesOriginales = bytesOriginales;
+        this.bytesComprimidos = bytesComprimidos;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Devuelve la cantidad de bytes sin comprimir.
+     *
+     * @return Los bytes sin comprimir.
+     */
+    public long getBytesOriginales() {
+        return bytesOriginales;
+    }
+
+    /**
+     * Devuelve la cantidad de bytes comprimidos.
+     *
+     * @return Los bytes comprimidos.
+     */
+    public long getBytesComprimidos() {
+        return bytesComprimidos;
+    }
+
+    /**
+     * Devuelve la duración de la transferencia.
+     *
+     * @return La duración en nanosegundos.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Calcula el rendimiento de la transferencia sobre los datos sin comprimir.
+     *
+     * @return El rendimiento en megabytes por segundo.
+     */
+    public double mbPorSegundo() {
+        return nanos > 0 ? (bytesOriginales / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0) : 0.0;
+    }
+
+    /**
+     * Método para representar el resultado como una cadena de texto.
+     *
+     * @return Una representación en cadena de texto del resultado.
+     */
+    @Override
+    public String toString() {
+        return "ResultadoTransferencia{" +
+               "bytesOriginales=" + bytesOriginales +
+               ", bytesComprimidos=" + bytesComprimidos +
+               ", mbPorSegundo=" + String.format("%.2f", mbPorSegundo()) +
+               '}';
+    }
+}
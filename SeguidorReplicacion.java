@@ -0,0 +1,147 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Clase que recibe las entradas de una instancia primaria y las aplica en orden sobre el estado local.
+ * Al conectarse responde el desafío del primario con la firma del secreto compartido. Si la conexión se pierde,
+ * se reconecta indicando la época y la última secuencia aplicada para recibir solo lo que falta. Si el primario no
+ * puede ponerlo al día de esa forma, por ejemplo porque se reinició, envía primero una instantánea con todo su
+ * estado, que reemplaza al local.
+ */
+public class SeguidorReplicacion implements Runnable, Closeable {
+
+    private static final long ESPERA_RECONEXION_MS = 1000;
+    private static final int LONGITUD_DESAFIO = 32; // Debe coincidir con la del primario
+
+    private final String host;
+    private final int puerto;
+    private final byte[] secreto;
+    private final Consumer<EntradaReplicacion> aplicador; // Aplica cada cambio sobre el estado local
+    private volatile Socket socket;
+    private volatile boolean activo = true;
+    private volatile long epoca; // Época del primario cuyo estado se aplicó, 0 mientras no se reciba ninguno
+    private volatile long ultimaSecuencia = -1; // Última secuencia aplicada, -1 mientras no se reciba ninguna
+    private volatile long secuenciaPrimario = -1; // Última secuencia conocida del primario
+    private volatile long retrasoMillis; // Antigüedad de la última entrada recibida al aplicarla
+
+    /**
+     * Constructor para la clase SeguidorReplicacion.
+     * @param host El host de la instancia primaria.
+     * @param puerto El puerto de replicación de la instancia primaria.
+     * @param secreto El secreto compartido con la instancia primaria.
+     * @param aplicador La operación que aplica cada cambio sobre el estado local.
+     */
+    public SeguidorReplicacion(String host, int puerto, String secreto, Consumer<EntradaReplicacion> aplicador) {
+        if (secreto == null || secreto.isEmpty()) {
+            throw new IllegalArgumentException("La replicación requiere un secreto compartido.");
+        }
+        this.host = host;
+        this.puerto = puerto;
+        this.secreto = secreto.getBytes(StandardCharsets.UTF_8);
+        this.aplicador = aplicador;
+    }
+
+    /**
+     * Inicia la recepción de entradas en un hilo demonio.
+     */
+    public void iniciar() {
+        Thread hilo = new Thread(this, "replicacion-seguidor");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Override
+    public void run() {
+        while (activo) {
+            try (Socket conexion = new Socket(host, puerto)) {
+                socket = conexion;
+                conexion.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(conexion.getInputStream()));
+                byte[] desafio = new byte[LONGITUD_DESAFIO];
+                in.readFully(desafio);
+                DataOutputStream out = new DataOutputStream(conexion.getOutputStream());
+                out.write(ReplicadorPrimario.firmar(secreto, desafio));
+                out.writeLong(epoca);
+                out.writeLong(ultimaSecuencia);
+                out.flush();
+                System.out.println("Conectado a la instancia primaria " + host + ":" + puerto);
+
+                while (activo) {
+                    EntradaReplicacion entrada = EntradaReplicacion.leer(in);
+                    boolean mismaEpoca = entrada.getEpoca() == epoca;
+                    if (entrada.getTipo() == EntradaReplicacion.Tipo.INSTANTANEA
+                            && (!mismaEpoca || entrada.getSecuencia() > ultimaSecuencia)) {
+                        // El estado completo reemplaza al local y fija la época y la secuencia desde las que se sigue
+                        aplicador.accept(entrada);
+                        epoca = entrada.getEpoca();
+                        ultimaSecuencia = entrada.getSecuencia();
+                    } else if (!mismaEpoca) {
+                        // Al reconectarse se pedirá el estado completo de la nueva época
+                        throw new IOException("la instancia primaria cambió de época sin enviar su estado.");
+                    } else if (entrada.getTipo() != EntradaReplicacion.Tipo.LATIDO
+                            && entrada.getSecuencia() > ultimaSecuencia) {
+                        // Las entradas ya aplicadas pueden repetirse tras una reconexión
+                        aplicador.accept(entrada);
+                        ultimaSecuencia = entrada.getSecuencia();
+                    }
+                    secuenciaPrimario = entrada.getSecuenciaPrimario();
+                    retrasoMillis = Math.max(0, System.currentTimeMillis() - entrada.getMarcaTiempo());
+                }
+            } catch (IOException e) {
+                if (activo) {
+                    System.out.println("Conexión con la instancia primaria perdida: " + e.getMessage());
+                    try {
+                        Thread.sleep(ESPERA_RECONEXION_MS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene la última secuencia aplicada.
+     * @return La última secuencia aplicada, o -1 si todavía no se aplicó ninguna.
+     */
+    public long getUltimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    /**
+     * Calcula cuántas entradas del primario faltan por aplicar.
+     * @return La cantidad de entradas de retraso, o -1 si todavía no se recibió el estado del primario.
+     */
+    public long retrasoEntradas() {
+        return ultimaSecuencia < 0 ? -1 : Math.max(0, secuenciaPrimario - ultimaSecuencia);
+    }
+
+    /**
+     * Obtiene la antigüedad de la última entrada recibida en el momento de aplicarla.
+     * Supone que los relojes del primario y del seguidor están sincronizados.
+     * @return El retraso en milisegundos.
+     */
+    public long getRetrasoMillis() {
+        return retrasoMillis;
+    }
+
+    /**
+     * Deja de seguir a la instancia primaria y cierra la conexión.
+     * @throws IOException Si ocurre un error al cerrar la conexión.
+     */
+    @Override
+    public void close() throws IOException {
+        activo = false;
+        Socket actual = socket;
+        if (actual != null) {
+            actual.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Clase que exporta e importa archivos de texto comprimidos en flujo continuo.
+ * Todos los buffers tienen un tamaño fijo, por lo que la memoria usada no depende del tamaño de los datos.
+ */
+public class TransferenciaComprimida {
+
+    /**
+     * Formato de compresión de los archivos.
+     */
+    public enum Codec {
+        GZIP,
+        DEFLATE
+    }
+
+    /**
+     * Operación que consume las líneas descomprimidas de un archivo importado.
+     */
+    public interface Lector {
+        void leer(BufferedReader br) throws IOException;
+    }
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final Codec codec;
+    private final int nivel; // Nivel de compresión de Deflater, de 0 a 9 o Deflater.DEFAULT_COMPRESSION
+
+    /**
+     * Constructor para la clase TransferenciaComprimida.
+     * @param codec El formato de compresión.
+     * @param nivel El nivel de compresión al exportar, de 0 (más rápido) a 9 (más compacto).
+     */
+    public TransferenciaComprimida(Codec codec, int nivel) {
+        if ((nivel < 0 || nivel > 9) && nivel != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("El nivel de compresión debe estar entre 0 y 9.");
+        }
+        this.codec = codec;
+        this.nivel = nivel;
+    }
+
+    /**
+     * Escribe las líneas indicadas en un archivo comprimido. El archivo se reemplaza de forma atómica, de modo
+     * que un error a mitad de la exportación no deja un archivo truncado en el destino.
+     * @param destino El archivo de destino.
+     * @param lineas Las líneas a escribir, sin salto de línea final.
+     * @return El resultado de la transferencia.
+     * @throws IOException Si ocurre un error de E/S al escribir el archivo; en ese caso el destino no cambia.
+     */
+    public ResultadoTransferencia exportar(Path destino, Iterable<String> lineas) throws IOException {
+        long inicio = System.nanoTime();
+        ContadorSalida[] contadores = new ContadorSalida[2]; // Bytes comprimidos y originales
+        EscrituraAtomica.escribir(destino, out -> {
+            contadores[0] = new ContadorSalida(out);
+            contadores[1] = new ContadorSalida(comprimir(contadores[0]));
+            try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(contadores[1], StandardCharsets.UTF_8),
+                    TAMANO_BUFFER)) {
+                for (String linea : lineas) {
+                    bw.write(linea);
+                    bw.newLine();
+                }
+            }
+        });
+        return new ResultadoTransferencia(contadores[1].bytes, contadores[0].bytes, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Lee un archivo comprimido y entrega sus líneas descomprimidas al lector indicado, sin archivos temporales.
+     * @param origen El archivo a importar.
+     * @param lector La operación que consume las líneas.
+     * @return El resultado de la transferencia.
+     * @throws IOException Si ocurre un error de E/S al leer el archivo.
+     */
+    public ResultadoTransferencia importar(Path origen, Lector lector) throws IOException {
+        long inicio = System.nanoTime();
+        ContadorEntrada comprimidos = new ContadorEntrada(Files.newInputStream(origen));
+        ContadorEntrada originales;
+        try {
+            originales = new ContadorEntrada(descomprimir(comprimidos));
+        } catch (IOException e) {
+            comprimidos.close();
+            throw e;
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(originales, StandardCharsets.UTF_8),
+                TAMANO_BUFFER)) {
+            lector.leer(br);
+        }
+        return new ResultadoTransferencia(originales.bytes, comprimidos.bytes, System.nanoTime() - inicio);
+    }
+
+    private OutputStream comprimir(OutputStream destino) throws IOException {
+        if (codec == Codec.GZIP) {
+            // GZIPOutputStream no permite elegir el Deflater, pero sí su nivel
+            return new GZIPOutputStream(destino, TAMANO_BUFFER) {
+                {
+                    def.setLevel(nivel);
+                }
+            };
+        }
+        // Un Deflater propio no se libera al cerrar el flujo, por eso se libera aquí
+        return new DeflaterOutputStream(destino, new Deflater(nivel), TAMANO_BUFFER) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+
+    private InputStream descomprimir(InputStream origen) throws IOException {
+        if (codec == Codec.GZIP) {
+            return new GZIPInputStream(origen, TAMANO_BUFFER);
+        }
+        return new InflaterInputStream(origen, new Inflater(), TAMANO_BUFFER) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Flujo de salida que cuenta los bytes escritos.
+     */
+    private static class ContadorSalida extends FilterOutputStream {
+        private long bytes;
+
+        ContadorSalida(OutputStream destino) {
+            super(destino);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+        }
+    }
+
+    /**
+     * Flujo de entrada que cuenta los bytes leídos.
+     */
+    private static class ContadorEntrada extends FilterInputStream {
+        private long bytes;
+
+        ContadorEntrada(InputStream origen) {
+            super(origen);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int leidos = in.read(b, off, len);
+            if (leidos > 0) {
+                bytes += leidos;
+            }
+            return leidos;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Clase que vigila los archivos de datos en disco y ejecuta una acción cuando alguno de ellos cambia.
+ * Los eventos que llegan seguidos se agrupan y la acción se ejecuta una sola vez cuando pasa un intervalo sin
+ * cambios, recibiendo los nombres de los archivos modificados.
+ * Se ejecuta en un hilo demonio para no impedir que la aplicación termine.
+ */
+public class VigilanteArchivos implements Runnable {
+
+    private static final long ESPERA_MS = 200; // Intervalo sin eventos tras el cual se ejecuta la acción
+
+    private final Path directorio; // Directorio que contiene los archivos vigilados
+    private final Set<String> archivos; // Nombres de los archivos que disparan la acción
+    private final Consumer<Set<String>> accion; // Acción a ejecutar con los archivos que cambiaron
+    private final WatchService servicio;
+
+    /**
+     * Constructor para la clase VigilanteArchivos.
+     * @param directorio El directorio que contiene los archivos a vigilar.
+     * @param archivos Los nombres de los archivos a vigilar dentro del directorio.
+     * @param accion La acción a ejecutar con los nombres de los archivos que se crearon o modificaron.
+     * @throws IOException Si no se puede registrar el directorio en el servicio de vigilancia.
+     */
+    public VigilanteArchivos(Path directorio, Set<String> archivos, Consumer<Set<String>> accion) throws IOException {
+        this.directorio = directorio;
+        this.archivos = archivos;
+        this.accion = accion;
+        this.servicio = FileSystems.getDefault().newWatchService();
+        directorio.register(servicio, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Inicia la vigilancia en un hilo demonio.
+     */
+    public void iniciar() {
+        Thread hilo = new Thread(this, "vigilante-" + directorio);
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey clave = servicio.take();
+                Set<String> cambiados = new HashSet<>();
+                // Los eventos que llegan antes de que pase la espera se agrupan en una sola ejecución de la acción
+                while (clave != null) {
+                    for (WatchEvent<?> evento : clave.pollEvents()) {
+                        Object contexto = evento.context();
+                        if (contexto instanceof Path && archivos.contains(((Path) contexto).getFileName().toString())) {
+                            cambiados.add(((Path) contexto).getFileName().toString());
+                        }
+                    }
+                    if (!clave.reset()) {
+                        System.out.println("El directorio " + directorio + " ya no puede vigilarse.");
+                        return;
+                    }
+                    clave = servicio.poll(ESPERA_MS, TimeUnit.MILLISECONDS);
+                }
+                if (!cambiados.isEmpty()) {
+                    accion.accept(cambiados);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}